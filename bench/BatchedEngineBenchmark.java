@@ -0,0 +1,216 @@
+import java.util.Arrays;
+
+// Compara BatchedEngine con GameEngine en un solo hilo. Primero juega las mismas
+// partidas (mismas semillas y entradas) en los dos motores y comprueba tick a
+// tick que el estado coincide, con los niveles elegidos y además con
+// laberintos generados pequeños (CLEARING_LEVELS); termina con código 1 si no
+// coincide o si en estos no se completa ningún nivel, porque entonces la carga
+// de niveles y la velocidad rápida de Pac-Man quedarían sin comprobar. La mitad
+// de esas partidas va a por el punto más cercano; las demás y las de la
+// medición usan entradas al azar. Después mide
+// ticks de partida por segundo de cada motor (el mejor de varios intentos):
+// GameEngine avanza las partidas una a una y BatchedEngine todas en cada step().
+// Al terminar una partida se empieza otra con una semilla nueva en su lugar.
+//
+// Uso: java -cp bin BatchedEngineBenchmark [partidas] [ticks] [niveles]
+// (niveles: pack o "endless:<semilla>:<ancho>x<alto>", como -Dpacman.levels)
+public class BatchedEngineBenchmark {
+    private static final int INPUT_PATTERN = 256;
+    private static final int TURN_CHANCE = 8;
+    private static final int ROUNDS = 5;
+    // The greedy games clear hundreds of levels here in the default run
+    static final String CLEARING_LEVELS = "endless:5:11x11";
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        LevelSource levels = args.length > 2 ? LevelSource.open(args[2]) : BuiltInLevels.INSTANCE;
+        byte[][] inputs = randomInputs(games);
+
+        int verifyGames = Math.min(games, 512);
+        verify(verifyGames, ticks, levels, inputs);
+        if (!levels.getName().equals(CLEARING_LEVELS)
+            && verify(verifyGames, ticks, LevelSource.open(CLEARING_LEVELS), inputs) == 0) {
+            System.out.println("FAIL: no level cleared on " + CLEARING_LEVELS + ", level loads were not verified");
+            System.exit(1);
+        }
+
+        // Best of several rounds; the first ones also warm up the JIT
+        double objects = 0;
+        double batched = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            objects = Math.max(objects, runObjects(games, ticks, levels, inputs));
+            batched = Math.max(batched, runBatched(games, ticks, levels, inputs));
+        }
+        System.out.printf("GameEngine:    %,.0f game-ticks/s%n", objects);
+        System.out.printf("BatchedEngine: %,.0f game-ticks/s (%.1fx)%n", batched, batched / objects);
+    }
+
+    // Same inputs for both engines: a new direction 1 in TURN_CHANCE ticks
+    private static byte[][] randomInputs(int games) {
+        GameRandom random = new GameRandom(99);
+        byte[][] inputs = new byte[INPUT_PATTERN][games];
+        for (byte[] tick : inputs) {
+            for (int game = 0; game < games; game++) {
+                tick[game] = random.nextInt(TURN_CHANCE) == 0 ? (byte) random.nextInt(4) : BatchedEngine.NO_INPUT;
+            }
+        }
+        return inputs;
+    }
+
+    private static Direction input(byte input) {
+        return input == BatchedEngine.NO_INPUT ? null : Direction.values()[input];
+    }
+
+    // Exits with code 1 if any game diverges; returns the levels cleared
+    private static long verify(int games, int ticks, LevelSource levels, byte[][] inputs) {
+        BatchedEngine batch = new BatchedEngine(games, levels);
+        GameEngine[] engines = new GameEngine[games];
+        long nextSeed = 0;
+        for (int game = 0; game < games; game++) {
+            engines[game] = new GameEngine(nextSeed, levels);
+            batch.reset(game, nextSeed++);
+        }
+        byte[] status = new byte[games];
+        byte[] verifyInputs = new byte[games];
+        int[] targets = new int[games];
+        Arrays.fill(targets, -1);
+        boolean[] diverged = new boolean[games];
+        int mismatches = 0;
+        long levelsCleared = 0;
+        long poweredTicks = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            byte[] tickInputs = inputs[tick % INPUT_PATTERN];
+            for (int game = 0; game < games; game++) {
+                verifyInputs[game] = game % 2 == 0 ? tickInputs[game] : towardsDot(engines[game], targets, game);
+            }
+            batch.step(verifyInputs, status);
+            for (int game = 0; game < games; game++) {
+                GameEngine engine = engines[game];
+                GameStatus expected = engine.step(input(verifyInputs[game]));
+                if (diverged[game]) {
+                    continue;
+                }
+                String difference = difference(engine, expected, batch, game, status[game]);
+                if (difference != null) {
+                    System.out.println("seed " + engine.getSeed() + " tick " + engine.getClock().getTicks()
+                        + ": " + difference);
+                    diverged[game] = true;
+                    mismatches++;
+                    continue;
+                }
+                poweredTicks += batch.isPowered(game) ? 1 : 0;
+                if (expected == GameStatus.LEVEL_COMPLETE) {
+                    levelsCleared++;
+                }
+                if (expected == GameStatus.GAME_OVER) {
+                    targets[game] = -1;
+                    engines[game] = new GameEngine(nextSeed, levels);
+                    batch.reset(game, nextSeed++);
+                }
+            }
+        }
+        System.out.printf("verified %d games over %d ticks on '%s' (%d levels cleared, %d powered ticks): %d mismatches%n",
+            nextSeed, ticks, levels.getName(), levelsCleared, poweredTicks, mismatches);
+        if (mismatches > 0) {
+            System.out.println("FAIL: " + mismatches + " games diverged from GameEngine");
+            System.exit(1);
+        }
+        return levelsCleared;
+    }
+
+    // First step on a shortest path to a dot, keeping the same dot until it
+    // is eaten so only one search runs per dot
+    static byte towardsDot(GameEngine engine, int[] targets, int game) {
+        MazeGraph graph = engine.getMazeGraph();
+        int node = engine.getPacmanNode();
+        if (node < 0) {
+            return BatchedEngine.NO_INPUT;
+        }
+        int target = targets[game];
+        if (target < 0 || engine.getCell(graph.getRow(target), graph.getCol(target)) != Level.DOT) {
+            target = -1;
+            int best = Integer.MAX_VALUE;
+            for (int candidate = 0; candidate < graph.getNodeCount(); candidate++) {
+                if (engine.getCell(graph.getRow(candidate), graph.getCol(candidate)) == Level.DOT) {
+                    int distance = graph.distance(node, candidate);
+                    if (distance >= 0 && distance < best) {
+                        best = distance;
+                        target = candidate;
+                    }
+                }
+            }
+            targets[game] = target;
+        }
+        Direction next = target < 0 || target == node ? null : graph.nextDirection(node, target);
+        return next == null ? BatchedEngine.NO_INPUT : (byte) next.ordinal();
+    }
+
+    private static String difference(GameEngine engine, GameStatus expected, BatchedEngine batch, int game,
+                                     byte status) {
+        if (status != expected.ordinal()) {
+            return "status " + GameStatus.values()[status] + " != " + expected;
+        }
+        Pacman pacman = engine.getPacman();
+        if (pacman.getX() != batch.getPacmanX(game) || pacman.getY() != batch.getPacmanY(game)
+            || pacman.getScore() != batch.getScore(game) || pacman.isPowered() != batch.isPowered(game)
+            || pacman.getDirection() != batch.getPacmanDirection(game)) {
+            return "pacman";
+        }
+        if (engine.getRemainingDots() != batch.getRemainingDots(game)
+            || engine.getLevelsCompleted() != batch.getLevelsCompleted(game)
+            || engine.getGhostMode() != batch.getGhostMode(game)) {
+            return "level";
+        }
+        Ghost[] ghosts = engine.getGhosts();
+        for (int g = 0; g < ghosts.length; g++) {
+            if (ghosts[g].getX() != batch.getGhostX(g, game) || ghosts[g].getY() != batch.getGhostY(g, game)) {
+                return "ghost " + g;
+            }
+        }
+        PowerUp[] powerUps = engine.getPowerUps();
+        for (int p = 0; p < powerUps.length; p++) {
+            if (powerUps[p].isActive() != batch.isPowerUpActive(p, game)
+                || powerUps[p].getX() != batch.getPowerUpX(p, game)
+                || powerUps[p].getY() != batch.getPowerUpY(p, game)) {
+                return "power-up " + p;
+            }
+        }
+        return null;
+    }
+
+    private static double runObjects(int games, int ticks, LevelSource levels, byte[][] inputs) {
+        GameEngine[] engines = new GameEngine[games];
+        long nextSeed = 0;
+        for (int game = 0; game < games; game++) {
+            engines[game] = new GameEngine(nextSeed++, levels);
+        }
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            byte[] tickInputs = inputs[tick % INPUT_PATTERN];
+            for (int game = 0; game < games; game++) {
+                if (engines[game].step(input(tickInputs[game])) == GameStatus.GAME_OVER) {
+                    engines[game] = new GameEngine(nextSeed++, levels);
+                }
+            }
+        }
+        return (double) games * ticks / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static double runBatched(int games, int ticks, LevelSource levels, byte[][] inputs) {
+        BatchedEngine batch = new BatchedEngine(games, levels);
+        byte[] status = new byte[games];
+        long nextSeed = games;
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            if (batch.step(inputs[tick % INPUT_PATTERN], status) < games) {
+                for (int game = 0; game < games; game++) {
+                    if (status[game] == GameStatus.GAME_OVER.ordinal()) {
+                        batch.reset(game, nextSeed++);
+                    }
+                }
+            }
+        }
+        return (double) games * ticks / ((System.nanoTime() - start) / 1e9);
+    }
+}
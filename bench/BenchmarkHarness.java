@@ -0,0 +1,93 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Arnés mínimo de microbenchmarks: calentamiento, varias iteraciones de
+// medida y bytes asignados por operación (equivalente a gc.alloc.rate.norm)
+// leídos del ThreadMXBean del hilo actual.
+public final class BenchmarkHarness {
+    // One benchmark operation repeated 'ops' times; the returned value is
+    // consumed so the JIT can't drop the work
+    public interface Operation {
+        long run(int ops);
+    }
+
+    public static final class Result {
+        final String name;
+        final String params;
+        final double nanosPerOp;
+        final double errorNanos;
+        final double bytesPerOp;
+
+        Result(String name, String params, double nanosPerOp, double errorNanos, double bytesPerOp) {
+            this.name = name;
+            this.params = params;
+            this.nanosPerOp = nanosPerOp;
+            this.errorNanos = errorNanos;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final int opsPerIteration;
+    private final List<Result> results = new ArrayList<>();
+    private long sink;
+
+    public BenchmarkHarness(int warmupIterations, int measureIterations, int opsPerIteration) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.opsPerIteration = opsPerIteration;
+    }
+
+    public Result measure(String name, String params, Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            sink += operation.run(opsPerIteration);
+        }
+        long threadId = Thread.currentThread().getId();
+        double[] samples = new double[measureIterations];
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < measureIterations; i++) {
+            long start = System.nanoTime();
+            sink += operation.run(opsPerIteration);
+            samples[i] = (double) (System.nanoTime() - start) / opsPerIteration;
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        double mean = 0;
+        for (double sample : samples) {
+            mean += sample;
+        }
+        mean /= samples.length;
+        double variance = 0;
+        for (double sample : samples) {
+            variance += (sample - mean) * (sample - mean);
+        }
+        double error = samples.length > 1 ? Math.sqrt(variance / (samples.length - 1)) : 0;
+        Result result = new Result(name, params, mean, error,
+            (double) allocated / ((long) measureIterations * opsPerIteration));
+        results.add(result);
+        System.out.printf("%-28s %-22s %12.2f +- %8.2f ns/op %10.2f B/op%n",
+            name, params, result.nanosPerOp, result.errorNanos, result.bytesPerOp);
+        return result;
+    }
+
+    // Append every result as CSV so runs from different releases can be compared
+    public void appendCsv(String file, String label) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            for (Result r : results) {
+                out.printf("%s,%s,%s,%.3f,%.3f,%.3f%n",
+                    label, r.name, r.params, r.nanosPerOp, r.errorNanos, r.bytesPerOp);
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+}
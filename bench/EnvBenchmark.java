@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.util.Arrays;
+
+// Comprueba y mide la API de entrenamiento. Primero juega las mismas partidas
+// en un VectorEnv y en un PacmanEnv por entorno y compara tick a tick estados,
+// recompensas y observaciones, y cada cierto tiempo la observación de
+// PacmanEnv con una escrita desde cero a partir del estado del motor, con los
+// niveles elegidos y además con BatchedEngineBenchmark.CLEARING_LEVELS; termina
+// con código 1 si algo no coincide o si en estos no se completa ningún nivel.
+// Después mide pasos por segundo de
+// VectorEnv en el proceso y a través de EnvServer, como lo vería un
+// entrenador en otro proceso (fichero compartido y una orden por paso).
+//
+// Uso: java -cp bin EnvBenchmark [entornos] [ticks] [niveles]
+public class EnvBenchmark {
+    private static final int FULL_CHECK_INTERVAL = 16;
+    private static final int TURN_CHANCE = 8;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int envs = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        LevelSource levels = args.length > 2 ? LevelSource.open(args[2]) : BuiltInLevels.INSTANCE;
+
+        int verifyEnvs = Math.min(envs, 256);
+        verify(verifyEnvs, ticks, levels);
+        String clearing = BatchedEngineBenchmark.CLEARING_LEVELS;
+        if (!levels.getName().equals(clearing) && verify(verifyEnvs, ticks, LevelSource.open(clearing)) == 0) {
+            System.out.println("FAIL: no level cleared on " + clearing + ", level loads were not verified");
+            System.exit(1);
+        }
+
+        double inProcess = 0;
+        double bridged = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            inProcess = Math.max(inProcess, runInProcess(envs, ticks, levels));
+            bridged = Math.max(bridged, runBridged(envs, ticks, levels));
+        }
+        System.out.printf("VectorEnv:            %,.0f env-steps/s%n", inProcess);
+        System.out.printf("EnvServer (loopback): %,.0f env-steps/s, %,.0f round trips/s%n", bridged, bridged / envs);
+    }
+
+    // Half of the environments chase the nearest dot so levels get cleared.
+    // Exits with code 1 if any environment diverges; returns the levels cleared
+    private static long verify(int envs, int ticks, LevelSource levels) {
+        ObservationLayout layout = ObservationLayout.of(levels);
+        ByteBuffer shared = ByteBuffer.allocateDirect((int) VectorEnv.bufferBytes(envs, layout))
+            .order(ByteOrder.nativeOrder());
+        VectorEnv vector = new VectorEnv(envs, levels, layout, shared);
+        PacmanEnv[] singles = new PacmanEnv[envs];
+        ByteBuffer[] observations = new ByteBuffer[envs];
+        for (int env = 0; env < envs; env++) {
+            observations[env] = ByteBuffer.allocateDirect(layout.getBytes()).order(ByteOrder.nativeOrder());
+            singles[env] = new PacmanEnv(levels, layout, observations[env]);
+            singles[env].reset(vector.getSeed(env));
+        }
+        ByteBuffer expected = ByteBuffer.allocateDirect(layout.getBytes()).order(ByteOrder.nativeOrder());
+        int[] targets = new int[envs];
+        Arrays.fill(targets, -1);
+        boolean[] diverged = new boolean[envs];
+        GameRandom random = new GameRandom(7);
+        int observationsStart = VectorEnv.observationsOffset(envs);
+        int mismatches = 0;
+        long levelsCleared = 0;
+        long games = envs;
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int env = 0; env < envs; env++) {
+                byte action = env % 2 == 1 ? BatchedEngineBenchmark.towardsDot(singles[env].getEngine(), targets, env)
+                    : random.nextInt(TURN_CHANCE) == 0 ? (byte) random.nextInt(4) : BatchedEngine.NO_INPUT;
+                shared.put(env, action);
+            }
+            vector.step();
+            for (int env = 0; env < envs; env++) {
+                byte action = shared.get(env);
+                PacmanEnv single = singles[env];
+                GameStatus status = single.step(action == BatchedEngine.NO_INPUT ? null : Direction.values()[action]);
+                int reward = single.getReward();
+                if (status == GameStatus.GAME_OVER) {
+                    targets[env] = -1;
+                    single.reset(vector.getSeed(env));
+                    games++;
+                }
+                if (diverged[env]) {
+                    continue;
+                }
+                String difference = null;
+                if (shared.get(VectorEnv.statusOffset(envs) + env) != status.ordinal()) {
+                    difference = "status";
+                } else if (shared.getInt(VectorEnv.rewardsOffset(envs) + 4 * env) != reward) {
+                    difference = "reward";
+                } else if (!sameBytes(shared, observationsStart + env * layout.getBytes(), observations[env], 0,
+                    layout.getBytes())) {
+                    difference = "observation";
+                } else if (tick % FULL_CHECK_INTERVAL == 0) {
+                    writeExpected(single.getEngine(), layout, expected);
+                    if (!sameBytes(expected, 0, observations[env], 0, layout.getBytes())) {
+                        difference = "observation written from scratch";
+                    }
+                }
+                if (difference != null) {
+                    System.out.println("env " + env + " seed " + vector.getSeed(env) + " tick " + tick + ": "
+                        + difference);
+                    diverged[env] = true;
+                    mismatches++;
+                }
+                if (status == GameStatus.LEVEL_COMPLETE) {
+                    levelsCleared++;
+                }
+            }
+        }
+        System.out.printf("verified %d games over %d ticks on '%s' (%d levels cleared): %d mismatches%n",
+            games, ticks, levels.getName(), levelsCleared, mismatches);
+        if (mismatches > 0) {
+            System.out.println("FAIL: " + mismatches + " environments diverged");
+            System.exit(1);
+        }
+        return levelsCleared;
+    }
+
+    // The whole observation straight from the engine, without ObservationWriter
+    private static void writeExpected(GameEngine engine, ObservationLayout layout, ByteBuffer out) {
+        for (int i = 0; i < layout.getBytes(); i++) {
+            out.put(i, (byte) 0);
+        }
+        Level level = engine.getLevelSource().getLevel(engine.getCurrentLevel());
+        for (int row = 0; row < layout.getRows(); row++) {
+            for (int col = 0; col < layout.getCols(); col++) {
+                boolean inside = col < level.getWidth() && row < level.getHeight();
+                int cell = inside ? engine.getCell(row, col) : Level.WALL;
+                out.put(layout.offset(ObservationLayout.WALL_PLANE, col, row), (byte) (cell == Level.WALL ? 1 : 0));
+                out.put(layout.offset(ObservationLayout.DOT_PLANE, col, row), (byte) (cell == Level.DOT ? 1 : 0));
+            }
+        }
+        int half = GameEngine.SPRITE_SIZE / 2;
+        Pacman pacman = engine.getPacman();
+        int at = layout.offset(ObservationLayout.PACMAN_PLANE, engine.wrapX(pacman.getX() + half) / GameEngine.BLOCK_SIZE,
+            engine.wrapY(pacman.getY() + half) / GameEngine.BLOCK_SIZE);
+        out.put(at, (byte) 1);
+        for (Ghost ghost : engine.getGhosts()) {
+            at = layout.offset(ObservationLayout.GHOST_PLANE, engine.wrapX(ghost.getX() + half) / GameEngine.BLOCK_SIZE,
+                engine.wrapY(ghost.getY() + half) / GameEngine.BLOCK_SIZE);
+            out.put(at, (byte) (out.get(at) + 1));
+        }
+        for (PowerUp powerUp : engine.getPowerUps()) {
+            if (powerUp.isActive()) {
+                at = layout.offset(ObservationLayout.POWER_UP_PLANE,
+                    engine.wrapX(powerUp.getX() + half) / GameEngine.BLOCK_SIZE,
+                    engine.wrapY(powerUp.getY() + half) / GameEngine.BLOCK_SIZE);
+                out.put(at, (byte) (powerUp.getType().ordinal() + 1));
+            }
+        }
+        out.putInt(layout.getScoreOffset(), pacman.getScore());
+        out.put(layout.getPoweredOffset(), (byte) (pacman.isPowered() ? 1 : 0));
+    }
+
+    private static boolean sameBytes(ByteBuffer a, int aStart, ByteBuffer b, int bStart, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a.get(aStart + i) != b.get(bStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Random actions written into the buffer, as a trainer would
+    private static void writeActions(ByteBuffer buffer, int start, int envs, GameRandom random) {
+        for (int env = 0; env < envs; env++) {
+            buffer.put(start + env, random.nextInt(TURN_CHANCE) == 0 ? (byte) random.nextInt(4) : BatchedEngine.NO_INPUT);
+        }
+    }
+
+    private static double runInProcess(int envs, int ticks, LevelSource levels) {
+        ObservationLayout layout = ObservationLayout.of(levels);
+        ByteBuffer shared = ByteBuffer.allocateDirect((int) VectorEnv.bufferBytes(envs, layout))
+            .order(ByteOrder.nativeOrder());
+        VectorEnv vector = new VectorEnv(envs, levels, layout, shared);
+        GameRandom random = new GameRandom(11);
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            writeActions(shared, 0, envs, random);
+            vector.step();
+        }
+        return (double) envs * ticks / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // A trainer in another thread that only sees the file and the socket
+    private static double runBridged(int envs, int ticks, LevelSource levels) throws Exception {
+        Path dir = Files.isDirectory(Paths.get("/dev/shm")) ? Paths.get("/dev/shm") : Paths.get(System.getProperty("java.io.tmpdir"));
+        Path file = Files.createTempFile(dir, "pacman-env", ".bin");
+        try (EnvServer server = new EnvServer(file, envs, levels, 0)) {
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    // Closed at the end of the run
+                }
+            });
+            serving.setDaemon(true);
+            serving.start();
+
+            MappedByteBuffer memory;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                memory = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            memory.order(ByteOrder.LITTLE_ENDIAN);
+            if (memory.getInt(0) != EnvServer.MAGIC || memory.getInt(8) != envs) {
+                throw new IllegalStateException("Bad shared memory header");
+            }
+            int actions = memory.getInt(28);
+            GameRandom random = new GameRandom(11);
+            ByteBuffer command = ByteBuffer.allocateDirect(1);
+            try (SocketChannel trainer = SocketChannel.open(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+                trainer.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                long start = System.nanoTime();
+                for (int tick = 0; tick < ticks; tick++) {
+                    writeActions(memory, actions, envs, random);
+                    command.clear();
+                    command.put(0, EnvServer.STEP);
+                    trainer.write(command);
+                    command.clear();
+                    while (command.hasRemaining()) {
+                        if (trainer.read(command) < 0) {
+                            throw new IOException("EnvServer closed the connection");
+                        }
+                    }
+                }
+                return (double) envs * ticks / ((System.nanoTime() - start) / 1e9);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.awt.Color;
+import java.io.IOException;
+
+// Microbenchmarks del motor: isWall, eatPoint/checkLevelComplete, Pacman.move,
+// Ghost.move, colisiones, PowerUp.spawn, un tick completo y guardar/restaurar
+// el estado, por nivel y por número de fantasmas. Muestra ns/op y bytes asignados por operación.
+//
+// Uso: java -cp bin GameBenchmarks [fichero.csv etiqueta]
+public class GameBenchmarks {
+    private static final int[] GHOST_COUNTS = {3, 25, 100};
+    private static final int OPS = 200_000;
+
+    public static void main(String[] args) throws IOException {
+        BenchmarkHarness harness = new BenchmarkHarness(5, 10, OPS);
+        int levels = new GameEngine(1).getLevelCount();
+        for (int level = 0; level < levels; level++) {
+            String params = "level=" + (level + 1);
+            GameEngine engine = createEngine(level, 3);
+            harness.measure("isWall", params, ops -> isWall(engine, ops));
+            harness.measure("eatPoint+levelComplete", params, ops -> eatPoints(engine, ops));
+            harness.measure("Pacman.move", params, ops -> movePacman(createEngine(engine.getCurrentLevel(), 3), ops));
+            harness.measure("PowerUp.spawn", params, ops -> spawnPowerUp(engine, ops));
+            for (int ghosts : GHOST_COUNTS) {
+                String actorParams = params + " ghosts=" + ghosts;
+                GameEngine crowded = createEngine(level, ghosts);
+                harness.measure("Ghost.move", actorParams, ops -> moveGhosts(crowded, ops));
+                harness.measure("checkCollisions", actorParams, ops -> checkCollisions(crowded, ops));
+                harness.measure("tick", actorParams, ops -> tick(crowded, ops));
+                harness.measure("snapshot", actorParams, ops -> snapshot(crowded, ops));
+                harness.measure("restore", actorParams, ops -> restore(crowded, ops));
+            }
+        }
+        if (args.length >= 2) {
+            harness.appendCsv(args[0], args[1]);
+        }
+    }
+
+    static GameEngine createEngine(int level, int ghosts) {
+        GameEngine engine = new GameEngine(42);
+        engine.startLevel(level);
+        GameRandom random = new GameRandom(7);
+        MazeGraph graph = engine.getMazeGraph();
+        while (engine.getGhosts().length < ghosts) {
+            int node = random.nextInt(graph.getNodeCount());
+            engine.addGhost(graph.getCol(node) * GameEngine.BLOCK_SIZE, graph.getRow(node) * GameEngine.BLOCK_SIZE,
+                Color.ORANGE, new ChaseStrategy(), new ChaseStrategy());
+        }
+        return engine;
+    }
+
+    private static long isWall(GameEngine engine, int ops) {
+        long walls = 0;
+        int span = engine.getBoardWidth() * GameEngine.BLOCK_SIZE;
+        for (int i = 0; i < ops; i++) {
+            int x = (i * 7) % span;
+            int y = (i * 13) % span;
+            if (engine.isWall(x, y)) {
+                walls++;
+            }
+        }
+        return walls;
+    }
+
+    // Eats every dot in turn; clearing the board triggers the level change
+    private static long eatPoints(GameEngine engine, int ops) {
+        int size = GameEngine.BLOCK_SIZE;
+        int cols = engine.getBoardWidth();
+        int rows = engine.getBoardHeight();
+        long eaten = 0;
+        for (int i = 0; i < ops; i++) {
+            int cell = i % (cols * rows);
+            engine.eatPoint((cell % cols) * size + size / 2, (cell / cols) * size + size / 2);
+            eaten += engine.getRemainingDots();
+        }
+        return eaten;
+    }
+
+    private static long movePacman(GameEngine engine, int ops) {
+        Pacman pacman = engine.getPacman();
+        Direction[] directions = Direction.values();
+        long moved = 0;
+        for (int i = 0; i < ops; i++) {
+            if ((i & 15) == 0) {
+                pacman.setDesiredDirection(directions[(i >> 4) & 3]);
+            }
+            pacman.move();
+            moved += pacman.getX();
+        }
+        return moved;
+    }
+
+    private static long spawnPowerUp(GameEngine engine, int ops) {
+        PowerUp powerUp = engine.getPowerUps()[0];
+        long position = 0;
+        for (int i = 0; i < ops; i++) {
+            powerUp.spawn();
+            position += powerUp.getX();
+        }
+        return position;
+    }
+
+    private static long moveGhosts(GameEngine engine, int ops) {
+        Ghost[] ghosts = engine.getGhosts();
+        long moved = 0;
+        for (int i = 0; i < ops; i++) {
+            Ghost ghost = ghosts[i % ghosts.length];
+            ghost.move();
+            moved += ghost.getX();
+        }
+        return moved;
+    }
+
+    private static long checkCollisions(GameEngine engine, int ops) {
+        Pacman pacman = engine.getPacman();
+        int[] out = new int[engine.getGhosts().length];
+        long hits = 0;
+        for (int i = 0; i < ops; i++) {
+            hits += engine.ghostsOverlapping(pacman.getX(), pacman.getY(), pacman.getSpriteSize(), out);
+        }
+        return hits;
+    }
+
+    private static long snapshot(GameEngine engine, int ops) {
+        GameSnapshot snapshot = new GameSnapshot();
+        long size = 0;
+        for (int i = 0; i < ops; i++) {
+            size += engine.snapshot(snapshot).size();
+        }
+        return size;
+    }
+
+    // Restore alternately two states a few ticks apart, like a search bot does
+    private static long restore(GameEngine engine, int ops) {
+        GameEngine fork = engine.fork();
+        GameSnapshot before = fork.snapshot();
+        fork.step(null);
+        GameSnapshot after = fork.snapshot();
+        long score = 0;
+        for (int i = 0; i < ops; i++) {
+            fork.restore((i & 1) == 0 ? before : after);
+            score += fork.getClock().getTicks();
+        }
+        return score;
+    }
+
+    private static long tick(GameEngine engine, int ops) {
+        Direction[] directions = Direction.values();
+        long ticks = 0;
+        for (int i = 0; i < ops; i++) {
+            GameStatus status = engine.step((i & 31) == 0 ? directions[(i >> 5) & 3] : null);
+            if (status == GameStatus.GAME_OVER) {
+                engine.restart();
+            }
+            ticks += engine.getPacman().getScore();
+        }
+        return ticks;
+    }
+}
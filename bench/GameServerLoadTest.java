@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Prueba de carga de GameServer en loopback: un jugador por partida, que
+// cambia de dirección al azar, y miles de espectadores repartidos entre las
+// partidas, todos en un mismo Selector. Al final el servidor deja de avanzar,
+// se espera a que cada cliente reciba todo lo pendiente y se compara su
+// RemoteGame con el estado real de la partida; termina con código 1 si algún
+// cliente no coincide o no llegó al último tick. Muestra mensajes y bytes
+// recibidos, cuántos clientes tuvieron que resincronizarse y el coste del
+// tick en el servidor.
+//
+// Uso: java -cp bin GameServerLoadTest [espectadores] [segundos] [partidas]
+public class GameServerLoadTest {
+    private static final int CONNECT_BATCH = 256;
+    private static final int TURN_CHANCE = 8;
+    private static final long DRAIN_TIMEOUT_NANOS = 10_000_000_000L;
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final int game;
+        final boolean player;
+        final ByteBuffer in = ByteBuffer.allocate(8192);
+        final ByteBuffer input = ByteBuffer.allocate(GameProtocol.CLIENT_MESSAGE_SIZE);
+        final RemoteGame remote = new RemoteGame();
+        long deltas;
+        long keyframes;
+
+        Connection(SocketChannel channel, int game, boolean player) {
+            this.channel = channel;
+            this.game = game;
+            this.player = player;
+        }
+    }
+
+    private static long bytesReceived;
+
+    public static void main(String[] args) throws Exception {
+        int viewers = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        GameServer server = new GameServer(0, games, BuiltInLevels.INSTANCE, 1);
+        Thread serving = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "game-server");
+        serving.start();
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        Selector selector = Selector.open();
+        List<Connection> connections = new ArrayList<>();
+        GameRandom random = new GameRandom(3);
+        int total = games + viewers;
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        long connectedAt = 0;
+        long ticksConnected = 0;
+        long droppedConnected = 0;
+        while (System.nanoTime() < deadline) {
+            // Connect in batches so the accept backlog never overflows
+            for (int i = 0; i < CONNECT_BATCH && connections.size() < total; i++) {
+                int index = connections.size();
+                boolean player = index < games;
+                connections.add(connect(selector, address, index % games, player));
+            }
+            if (connectedAt == 0 && server.getClientCount() == total) {
+                connectedAt = System.nanoTime();
+                ticksConnected = server.getTicks();
+                droppedConnected = server.getDroppedTicks();
+            }
+            selector.select(10);
+            readReady(selector, random);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        server.stopTicking();
+        while (!server.isTickingStopped()) {
+            selector.select(10);
+            readReady(selector, random);
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (behind(connections, server) > 0 && System.nanoTime() < drainDeadline) {
+            selector.select(10);
+            readReady(selector, random);
+        }
+
+        int behind = behind(connections, server);
+        int mismatches = 0;
+        long deltas = 0;
+        long keyframes = 0;
+        for (Connection connection : connections) {
+            deltas += connection.deltas;
+            keyframes += connection.keyframes;
+            String difference = difference(connection.remote, server.getEngine(connection.game));
+            if (difference != null && connection.remote.getTick() == server.getEngine(connection.game).getClock().getTicks()) {
+                if (mismatches++ < 10) {
+                    System.out.println("game " + connection.game + ": " + difference);
+                }
+            }
+        }
+        LatencyHistogram tick = server.getTickNanos();
+        double secondsElapsed = elapsed / 1e9;
+        System.out.printf("%d clients (%d players), %d games, %.1f s, %d ticks (%d dropped)%n",
+            connections.size(), games, games, secondsElapsed, server.getTicks(), server.getDroppedTicks());
+        if (connectedAt > 0) {
+            double steady = (System.nanoTime() - connectedAt) / 1e9;
+            System.out.printf("with everyone connected: %.1f ticks/s (%d dropped) over %.1f s%n",
+                (server.getTicks() - ticksConnected) / steady, server.getDroppedTicks() - droppedConnected, steady);
+        }
+        System.out.printf("received %,d deltas (%,.0f/s) and %,d keyframes, %.1f MB (%.1f bytes per message)%n",
+            deltas, deltas / secondsElapsed, keyframes, bytesReceived / 1e6,
+            (double) bytesReceived / Math.max(1, deltas + keyframes));
+        System.out.printf("server: %d resyncs, tick + broadcast p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+            server.getResyncs(), tick.getValueAtPercentile(50) / 1e6, tick.getValueAtPercentile(99) / 1e6,
+            tick.getMax() / 1e6);
+        System.out.printf("%d clients behind the last tick, %d with a different state%n", behind, mismatches);
+
+        server.close();
+        serving.join();
+        for (Connection connection : connections) {
+            connection.channel.close();
+        }
+        if (behind > 0 || mismatches > 0) {
+            System.out.println("FAIL");
+            System.exit(1);
+        }
+    }
+
+    private static Connection connect(Selector selector, InetSocketAddress address, int game, boolean player)
+        throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        ByteBuffer join = ByteBuffer.allocate(GameProtocol.CLIENT_MESSAGE_SIZE);
+        join.put(GameProtocol.JOIN).put(player ? GameProtocol.PLAYER : GameProtocol.SPECTATOR).putShort((short) game);
+        join.flip();
+        while (join.hasRemaining()) {
+            channel.write(join);
+        }
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel, game, player);
+        channel.register(selector, SelectionKey.OP_READ, connection);
+        return connection;
+    }
+
+    private static void readReady(Selector selector, GameRandom random) throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Connection connection = (Connection) key.attachment();
+            ByteBuffer in = connection.in;
+            int read = connection.channel.read(in);
+            if (read < 0) {
+                throw new IOException("Server closed a connection");
+            }
+            bytesReceived += read;
+            in.flip();
+            while (in.remaining() >= GameProtocol.HEADER_SIZE) {
+                int length = in.getInt(in.position() + 1);
+                if (in.remaining() < GameProtocol.HEADER_SIZE + length) {
+                    if (GameProtocol.HEADER_SIZE + length > in.capacity()) {
+                        throw new IOException("Message of " + length + " bytes does not fit");
+                    }
+                    break;
+                }
+                byte type = in.get();
+                in.getInt();
+                ByteBuffer payload = in.slice();
+                payload.limit(length);
+                connection.remote.apply(type, payload);
+                in.position(in.position() + length);
+                if (type == GameProtocol.DELTA) {
+                    connection.deltas++;
+                    if (connection.player && random.nextInt(TURN_CHANCE) == 0) {
+                        sendInput(connection, random.nextInt(4));
+                    }
+                } else if (type == GameProtocol.KEYFRAME) {
+                    connection.keyframes++;
+                }
+            }
+            in.compact();
+        }
+    }
+
+    // Four bytes always fit in an idle socket's send buffer
+    private static void sendInput(Connection connection, int direction) throws IOException {
+        ByteBuffer input = connection.input;
+        input.clear();
+        input.put(GameProtocol.INPUT).put((byte) direction).putShort((short) 0).flip();
+        connection.channel.write(input);
+    }
+
+    private static int behind(List<Connection> connections, GameServer server) {
+        int behind = 0;
+        for (Connection connection : connections) {
+            if (connection.remote.getTick() != server.getEngine(connection.game).getClock().getTicks()) {
+                behind++;
+            }
+        }
+        return behind;
+    }
+
+    private static String difference(RemoteGame remote, GameEngine engine) {
+        Pacman pacman = engine.getPacman();
+        if (remote.getPacmanX() != pacman.getX() || remote.getPacmanY() != pacman.getY()
+            || remote.getPacmanDirection() != pacman.getDirection() || remote.getScore() != pacman.getScore()
+            || remote.isPowered() != pacman.isPowered()) {
+            return "pacman";
+        }
+        if (remote.getLevel() != engine.getCurrentLevel() || remote.getGhostMode() != engine.getGhostMode()
+            || remote.getRemainingDots() != engine.getRemainingDots()
+            || (remote.getStatus() == GameStatus.GAME_OVER) != engine.isGameOver()) {
+            return "level";
+        }
+        for (int row = 0; row < remote.getHeight(); row++) {
+            for (int col = 0; col < remote.getWidth(); col++) {
+                if (remote.hasDot(col, row) != (engine.getCell(row, col) == Level.DOT)) {
+                    return "dot at " + col + "," + row;
+                }
+            }
+        }
+        Ghost[] ghosts = engine.getGhosts();
+        for (int g = 0; g < ghosts.length; g++) {
+            if (remote.getGhostX(g) != ghosts[g].getX() || remote.getGhostY(g) != ghosts[g].getY()) {
+                return "ghost " + g;
+            }
+        }
+        PowerUp[] powerUps = engine.getPowerUps();
+        for (int p = 0; p < powerUps.length; p++) {
+            if (remote.isPowerUpActive(p) != powerUps[p].isActive() || powerUps[p].isActive()
+                && (remote.getPowerUpX(p) != powerUps[p].getX() || remote.getPowerUpY(p) != powerUps[p].getY())) {
+                return "power-up " + p;
+            }
+        }
+        return null;
+    }
+}
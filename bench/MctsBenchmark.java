@@ -0,0 +1,51 @@
+// Escalado del piloto automático MCTS con el número de hilos: simulaciones y
+// ticks del motor por segundo con el mismo presupuesto por decisión, partiendo
+// siempre del mismo estado de la partida. Antes de medir se hace una pasada
+// sin medir con cada número de hilos, así la fila de 1 hilo no paga el
+// calentamiento del JIT. Con más hilos que núcleos el speedup no mide
+// escalado y se marca como tal.
+//
+// Uso: java -cp bin MctsBenchmark [maxHilos] [presupuestoMs] [decisiones]
+public class MctsBenchmark {
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long budgetMillis = args.length > 1 ? Long.parseLong(args[1]) : MctsController.DEFAULT_BUDGET_MILLIS;
+        int decisions = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        GameEngine engine = new GameEngine(42);
+        // Warm-up: JIT-compile the engine and search code for every thread count
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(engine, budgetMillis, threads, decisions / 5 + 1, null);
+        }
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] totals = new long[2];
+            double seconds = run(engine, budgetMillis, threads, decisions, totals);
+            double perSecond = totals[0] / seconds;
+            if (threads == 1) {
+                baseline = perSecond;
+            }
+            System.out.printf("threads=%-3d simulations/s=%10.0f ticks/s=%12.0f speedup=%5.2f%s%n",
+                threads, perSecond, totals[1] / seconds, perSecond / baseline,
+                threads > cores ? " (more threads than the " + cores + " cores: not scaling)" : "");
+        }
+    }
+
+    // Seconds spent on 'decisions' decisions; adds iterations and ticks to
+    // totals[0] and totals[1] unless totals is null
+    private static double run(GameEngine engine, long budgetMillis, int threads, int decisions, long[] totals) {
+        try (MctsController controller = new MctsController(new GameRandom(7), budgetMillis, threads)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < decisions; i++) {
+                controller.nextDirection(engine);
+                if (totals != null) {
+                    totals[0] += controller.getLastIterations();
+                    totals[1] += controller.getLastTicks();
+                }
+            }
+            return (System.nanoTime() - start) / 1e9;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+// Mide lo que cuesta GameMetrics en el bucle de juego: el trabajo que añade a
+// cada iteración (tick + frame) frente a lo que cuesta la iteración sin él, y
+// termina con código 1 si supera el 1%. Con JFR grabando también sirve para ver
+// el coste de los TickEvent (-XX:StartFlightRecording).
+//
+// Uso: java -Djava.awt.headless=true -cp bin MetricsOverheadCheck
+public class MetricsOverheadCheck {
+    private static final double MAX_OVERHEAD = 0.01;
+
+    public static void main(String[] args) {
+        BenchmarkHarness harness = new BenchmarkHarness(10, 10, 20_000);
+        Board board = new Board();
+        board.setSize(400, 420);
+        BufferedImage frame = new BufferedImage(400, 420, BufferedImage.TYPE_INT_RGB);
+        Graphics g = frame.getGraphics();
+        GameMetrics metrics = new GameMetrics();
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        harness.measure("LatencyHistogram.record", "", ops -> {
+            for (int i = 0; i < ops; i++) {
+                histogram.record(i * 1_000L);
+            }
+            return histogram.getCount();
+        });
+        BenchmarkHarness frames = new BenchmarkHarness(5, 10, 2_000);
+        double loop = frames.measure("tick+frame", "no metrics", ops -> {
+            for (int i = 0; i < ops; i++) {
+                playTick(board);
+                board.render(g, 0.5);
+            }
+            return board.getEngine().getClock().getTicks();
+        }).nanosPerOp;
+        // What GameLoop adds with metrics on: the JFR event and the histograms
+        // around the tick, and one more clock read to time the render alone
+        long frameEnd = System.nanoTime();
+        double added = harness.measure("metrics per iteration", "", ops -> {
+            for (int i = 0; i < ops; i++) {
+                TickEvent event = new TickEvent();
+                event.begin();
+                event.end();
+                metrics.recordTick(i, event, board.getEngine());
+                long renderStart = System.nanoTime();
+                metrics.recordRender(frameEnd - renderStart);
+                metrics.frameShown(frameEnd);
+            }
+            return metrics.getTicks();
+        }).nanosPerOp;
+        g.dispose();
+
+        double overhead = added / loop;
+        System.out.printf("overhead: %.3f%% of a loop iteration%n", overhead * 100);
+        if (overhead > MAX_OVERHEAD) {
+            System.out.println("FAIL: metrics cost more than " + MAX_OVERHEAD * 100 + "%");
+            System.exit(1);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    // Keep the game running so every iteration does a real tick
+    private static void playTick(Board board) {
+        if (board.getEngine().isGameOver()) {
+            board.getEngine().restart();
+        }
+        board.update();
+    }
+}
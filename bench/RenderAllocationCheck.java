@@ -0,0 +1,62 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+// Comprueba que pintar un frame en estado estable no asigna memoria: pinta el
+// tablero en una imagen fuera de pantalla, durante la partida y con la pantalla
+// de GAME OVER, y termina con código 1 si algún frame asigna bytes.
+//
+// Uso: java -Djava.awt.headless=true -cp bin RenderAllocationCheck
+public class RenderAllocationCheck {
+    private static final int WINDOWS = 10;
+    private static final int FRAMES_PER_WINDOW = 2_000;
+
+    public static void main(String[] args) {
+        Board board = new Board();
+        board.setSize(400, 420);
+        BufferedImage frame = new BufferedImage(400, 420, BufferedImage.TYPE_INT_RGB);
+        Graphics g = frame.getGraphics();
+
+        // Play a few ticks so the HUD, sprites and maze layer are populated
+        for (int i = 0; i < 40; i++) {
+            board.update();
+        }
+        double playing = bytesPerFrame(board, g);
+        System.out.printf("playing:   %.2f B/frame%n", playing);
+
+        while (!board.getEngine().isGameOver()) {
+            board.update();
+        }
+        double gameOver = bytesPerFrame(board, g);
+        System.out.printf("game over: %.2f B/frame%n", gameOver);
+
+        g.dispose();
+        if (playing > 0 || gameOver > 0) {
+            System.out.println("FAIL: the render path allocates in steady state");
+            System.exit(1);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    // Measure consecutive windows of frames and keep the best one, so JIT
+    // warm-up (interpreted code allocates what compiled code doesn't) is excluded
+    private static double bytesPerFrame(Board board, Graphics g) {
+        double best = Double.MAX_VALUE;
+        for (int window = 0; window < WINDOWS; window++) {
+            best = Math.min(best, paintWindow(board, g));
+        }
+        return best;
+    }
+
+    private static double paintWindow(Board board, Graphics g) {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < FRAMES_PER_WINDOW; i++) {
+            board.render(g, 0.5);
+        }
+        return (double) (threads.getThreadAllocatedBytes(threadId) - before) / FRAMES_PER_WINDOW;
+    }
+}
@@ -0,0 +1,78 @@
+import java.awt.Color;
+
+// Compara la consulta de colisiones con el índice espacial frente a recorrer
+// todos los fantasmas, para un número creciente de fantasmas. El coste por
+// consulta con el índice debe mantenerse plano.
+//
+// Uso: java -cp bin SpatialHashBenchmark [consultas]
+public class SpatialHashBenchmark {
+    private static final int[] GHOST_COUNTS = {3, 10, 25, 50, 100, 200, 400};
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.printf("%8s %14s %14s%n", "ghosts", "hash ns/query", "scan ns/query");
+        for (int ghosts : GHOST_COUNTS) {
+            GameEngine engine = createEngine(ghosts);
+            int[] positions = randomPositions(engine, 4096);
+            // Warm up both paths before measuring
+            run(engine, positions, queries / 4, true);
+            run(engine, positions, queries / 4, false);
+            double hash = run(engine, positions, queries, true);
+            double scan = run(engine, positions, queries, false);
+            System.out.printf("%8d %14.1f %14.1f%n", engine.getGhosts().length, hash, scan);
+        }
+    }
+
+    private static GameEngine createEngine(int ghosts) {
+        GameEngine engine = new GameEngine(42);
+        GameRandom random = new GameRandom(7);
+        MazeGraph graph = engine.getMazeGraph();
+        while (engine.getGhosts().length < ghosts) {
+            int node = random.nextInt(graph.getNodeCount());
+            engine.addGhost(graph.getCol(node) * GameEngine.BLOCK_SIZE, graph.getRow(node) * GameEngine.BLOCK_SIZE,
+                Color.ORANGE, new ChaseStrategy(), new ChaseStrategy());
+        }
+        return engine;
+    }
+
+    private static int[] randomPositions(GameEngine engine, int count) {
+        GameRandom random = new GameRandom(11);
+        MazeGraph graph = engine.getMazeGraph();
+        int[] positions = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            int node = random.nextInt(graph.getNodeCount());
+            positions[2 * i] = graph.getCol(node) * GameEngine.BLOCK_SIZE + random.nextInt(GameEngine.BLOCK_SIZE / 4) * 4;
+            positions[2 * i + 1] = graph.getRow(node) * GameEngine.BLOCK_SIZE;
+        }
+        return positions;
+    }
+
+    private static double run(GameEngine engine, int[] positions, int queries, boolean useHash) {
+        int size = engine.getSpriteSize();
+        int[] out = new int[engine.getGhosts().length];
+        long hits = 0;
+        long start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            int p = (q & (positions.length / 2 - 1)) * 2;
+            int x = positions[p];
+            int y = positions[p + 1];
+            hits += useHash ? engine.ghostsOverlapping(x, y, size, out) : scan(engine.getGhosts(), x, y, size);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (hits < 0) {
+            System.out.println(hits);
+        }
+        return (double) elapsed / queries;
+    }
+
+    private static int scan(Ghost[] ghosts, int x, int y, int size) {
+        int count = 0;
+        for (Ghost ghost : ghosts) {
+            if (x < ghost.getX() + ghost.getSpriteSize() && x + size > ghost.getX()
+                && y < ghost.getY() + ghost.getSpriteSize() && y + size > ghost.getY()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
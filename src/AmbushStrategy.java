@@ -0,0 +1,23 @@
+// Apunta unas celdas por delante de Pac-Man para cortarle el paso
+public class AmbushStrategy extends TargetingStrategy {
+    private static final int CELLS_AHEAD = 4;
+
+    @Override
+    protected int target(Ghost ghost, GameEngine engine) {
+        return ahead(engine.getMazeGraph(), engine.getPacmanNode(), engine.getPacman().getDirection());
+    }
+
+    static int ahead(MazeGraph graph, int node, Direction heading) {
+        if (node < 0) {
+            return -1;
+        }
+        for (int i = 0; i < CELLS_AHEAD; i++) {
+            int next = graph.neighbor(node, heading);
+            if (next < 0) {
+                break;
+            }
+            node = next;
+        }
+        return node;
+    }
+}
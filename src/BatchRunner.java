@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+// Juega muchas partidas independientes en paralelo (ForkJoinPool) sin interfaz
+// gráfica y agrega sus resultados.
+//
+// Uso: java -cp bin BatchRunner [partidas] [hilos] [maxTicks] [semilla]
+// Con -Dpacman.replays=<directorio> graba además cada partida para ReplayPlayer
+// y con -Dpacman.levels=<pack> juega los niveles de un LevelPack (o "endless"
+// para laberintos generados, ver EndlessLevels).
+public class BatchRunner {
+    private final int maxTicks;
+    private final Function<GameEngine, PacmanController> controllerFactory;
+    private Path replayDirectory;
+    private LevelSource levels = BuiltInLevels.INSTANCE;
+
+    public BatchRunner(int maxTicks, Function<GameEngine, PacmanController> controllerFactory) {
+        this.maxTicks = maxTicks;
+        this.controllerFactory = controllerFactory;
+    }
+
+    public void setLevels(LevelSource levels) {
+        this.levels = levels;
+    }
+
+    // Record every game played from now on into the given directory
+    public void setReplayDirectory(Path replayDirectory) {
+        this.replayDirectory = replayDirectory;
+    }
+
+    public GameResult play(long seed) {
+        GameEngine engine = new GameEngine(seed, levels);
+        Path file = replayDirectory == null ? null : replayDirectory.resolve(seed + ".replay");
+        try (ReplayRecorder recorder = file == null ? null : new ReplayRecorder(file, engine)) {
+            return play(engine, recorder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot record " + file, e);
+        }
+    }
+
+    private GameResult play(GameEngine engine, ReplayRecorder recorder) throws IOException {
+        long seed = engine.getSeed();
+        PacmanController controller = controllerFactory.apply(engine);
+        int levelsToWin = engine.getLevelCount();
+        long ticks = 0;
+        while (ticks < maxTicks && engine.getLevelsCompleted() < levelsToWin) {
+            Direction input = controller.nextDirection(engine);
+            if (recorder != null) {
+                recorder.record(input);
+            }
+            GameStatus status = engine.step(input);
+            ticks++;
+            if (status == GameStatus.GAME_OVER) {
+                break;
+            }
+        }
+        if (recorder != null) {
+            recorder.finish(engine);
+        }
+        // Winning the last level doesn't reach a level past it
+        int levelReached = Math.min(engine.getLevelsCompleted() + 1, levelsToWin);
+        return new GameResult(seed, engine.getPacman().getScore(), ticks,
+            levelReached, engine.getLevelsCompleted() >= levelsToWin);
+    }
+
+    public BatchStats run(int games, long baseSeed, int threads) {
+        // Seeds are drawn up front so results don't depend on scheduling
+        GameRandom seeds = new GameRandom(baseSeed);
+        long[] gameSeeds = new long[games];
+        for (int i = 0; i < games; i++) {
+            gameSeeds[i] = seeds.nextLong();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            BatchStats stats = pool.submit(() -> IntStream.range(0, games)
+                .parallel()
+                .mapToObj(i -> play(gameSeeds[i]))
+                .collect(BatchStats::new, BatchStats::add, BatchStats::combine))
+                .get();
+            stats.setElapsedNanos(System.nanoTime() - start);
+            return stats;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxTicks = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+
+        BatchRunner runner = new BatchRunner(maxTicks, engine -> new RandomController(engine.splitRandom()));
+        String pack = System.getProperty("pacman.levels");
+        if (pack != null) {
+            runner.setLevels(LevelSource.open(pack));
+        }
+        String replays = System.getProperty("pacman.replays");
+        if (replays != null) {
+            runner.setReplayDirectory(Files.createDirectories(Paths.get(replays)));
+        }
+        System.out.println("Running " + games + " games on " + threads + " threads (maxTicks=" + maxTicks + ")");
+        System.out.println(runner.run(games, seed, threads));
+    }
+}
@@ -0,0 +1,79 @@
+// Estadísticas agregadas de un lote de partidas
+public class BatchStats {
+    private long games;
+    private long wins;
+    private long totalScore;
+    private long totalTicks;
+    private long totalLevelReached;
+    private int maxScore;
+    private long elapsedNanos;
+
+    public void add(GameResult result) {
+        games++;
+        if (result.isWon()) {
+            wins++;
+        }
+        totalScore += result.getScore();
+        totalTicks += result.getTicks();
+        totalLevelReached += result.getLevelReached();
+        maxScore = Math.max(maxScore, result.getScore());
+    }
+
+    public void combine(BatchStats other) {
+        games += other.games;
+        wins += other.wins;
+        totalScore += other.totalScore;
+        totalTicks += other.totalTicks;
+        totalLevelReached += other.totalLevelReached;
+        maxScore = Math.max(maxScore, other.maxScore);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getMeanScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+
+    public double getMeanTicks() {
+        return games == 0 ? 0 : (double) totalTicks / games;
+    }
+
+    public double getMeanLevelReached() {
+        return games == 0 ? 0 : (double) totalLevelReached / games;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    public double getTicksPerSecond() {
+        return elapsedNanos == 0 ? 0 : totalTicks * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "games=%d winRate=%.3f meanScore=%.1f maxScore=%d meanTicks=%.1f meanLevel=%.2f%n"
+                + "elapsed=%.3fs games/s=%.1f ticks/s=%.0f",
+            games, getWinRate(), getMeanScore(), maxScore, getMeanTicks(), getMeanLevelReached(),
+            elapsedNanos / 1e9, getGamesPerSecond(), getTicksPerSecond());
+    }
+}
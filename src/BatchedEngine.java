@@ -0,0 +1,767 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Motor por lotes para entrenamiento y simulaciones masivas: N partidas con las
+// reglas de GameEngine (tres fantasmas, power-up y fruta) guardadas como
+// estructura de arrays (la x de Pac-Man de todas las partidas, la x del
+// fantasma 0 de todas las partidas...) en lugar de un grafo de objetos por
+// partida. step() avanza todas a la vez por fases: reloj y modos, Pac-Man,
+// cada fantasma, power-ups y colisiones. Las fases que no consultan tablas ni
+// el azar son bucles planos sobre ints que el JIT puede vectorizar.
+//
+// Con la misma semilla y las mismas entradas cada partida evoluciona igual que
+// new GameEngine(semilla, niveles), así que sus resultados se pueden grabar y
+// reproducir. No tiene listeners, snapshots ni dibujo, y cada instancia es de
+// un solo hilo: para usar varios núcleos se crea un motor por hilo.
+public final class BatchedEngine {
+    // Input for games whose direction does not change this step
+    public static final byte NO_INPUT = -1;
+    public static final int GHOSTS = GameEngine.LEVEL_GHOSTS;
+    private static final PowerUpType[] POWER_UP_TYPES = {PowerUpType.POWER, PowerUpType.FRUIT};
+    private static final int POWER_UPS = POWER_UP_TYPES.length;
+    private static final int BLOCK_SIZE = GameEngine.BLOCK_SIZE;
+    private static final int SIZE = GameEngine.SPRITE_SIZE;
+    private static final int HALF = SIZE / 2;
+    // respawnTick of power-ups on the board or hidden without a timer
+    private static final long NO_RESPAWN = Long.MAX_VALUE;
+    private static final int LEFT = Direction.LEFT.ordinal();
+    private static final int SCATTER = GhostMode.SCATTER.ordinal();
+    private static final int CHASE = GhostMode.CHASE.ordinal();
+    private static final int FRIGHTENED = GhostMode.FRIGHTENED.ordinal();
+    private static final byte RUNNING = (byte) GameStatus.RUNNING.ordinal();
+    private static final byte LEVEL_COMPLETE = (byte) GameStatus.LEVEL_COMPLETE.ordinal();
+    private static final byte GAME_OVER = (byte) GameStatus.GAME_OVER.ordinal();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GhostMode[] MODES = GhostMode.values();
+    // Same corners as the ghosts GameEngine creates
+    private static final PatrolStrategy.Corner[] SCATTER_CORNERS = {
+        PatrolStrategy.Corner.TOP_RIGHT, PatrolStrategy.Corner.TOP_LEFT, PatrolStrategy.Corner.BOTTOM_RIGHT
+    };
+    private static final int CACHE_SIZE = 16;
+
+    private final int games;
+    private final LevelSource levels;
+
+    // Per game
+    private final long[] seeds;
+    private final LevelData[] level;
+    private final int[] currentLevel;
+    private final int[] levelsCompleted;
+    private final int[] alive;          // 1 while the game runs, 0 after game over
+    private final boolean[] levelCompleted;
+    private final long[] ticks;
+    private final long[][] dots;
+    private final int[] remainingDots;
+    private final int[] pixelWidth;
+    private final int[] pixelHeight;
+    private final int[] phase;
+    private final long[] phaseTicks;
+    private final int[] mode;
+
+    // Pacman
+    private final int[] pacmanX;
+    private final int[] pacmanY;
+    private final int[] pacmanDirection;
+    private final int[] desiredDirection;
+    private final int[] pacmanSpeed;
+    private final int[] nextPacmanSpeed;
+    private final int[] score;
+    private final boolean[] powered;
+    private final long[] powerUpStartTick;
+
+    // Ghosts and power-ups, [actor][game]
+    private final int[][] ghostX;
+    private final int[][] ghostY;
+    private final int[][] ghostDirection;
+    private final int[][] ghostSpeed;
+    private final long[][] ghostSeed;
+    private final long[][] ghostGamma;
+    private final int[][] powerUpX;
+    private final int[][] powerUpY;
+    private final int[][] powerUpActive;  // 1 on the board, 0 eaten or hidden
+    private final long[][] respawnTick;
+    private final long[][] powerUpSeed;
+    private final long[][] powerUpGamma;
+
+    // Scratch state shared by all games, used one game at a time
+    private final int[] caught;
+    private final int[] pending;
+    private final GameRandom random = new GameRandom(0);
+    private int[] spawnMarks = new int[0];
+    private int spawnStamp = 0;
+    private final Map<Level, LevelData> cache = new LinkedHashMap<Level, LevelData>(CACHE_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Level, LevelData> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // Every game starts right away on level 0 with seeds 0, 1, 2...; call
+    // reset() to give a game another seed
+    public BatchedEngine(int games, LevelSource levels) {
+        if (games <= 0) {
+            throw new IllegalArgumentException("games must be positive");
+        }
+        this.games = games;
+        this.levels = levels;
+        seeds = new long[games];
+        level = new LevelData[games];
+        currentLevel = new int[games];
+        levelsCompleted = new int[games];
+        alive = new int[games];
+        levelCompleted = new boolean[games];
+        ticks = new long[games];
+        dots = new long[games][];
+        remainingDots = new int[games];
+        pixelWidth = new int[games];
+        pixelHeight = new int[games];
+        phase = new int[games];
+        phaseTicks = new long[games];
+        mode = new int[games];
+        pacmanX = new int[games];
+        pacmanY = new int[games];
+        pacmanDirection = new int[games];
+        desiredDirection = new int[games];
+        pacmanSpeed = new int[games];
+        nextPacmanSpeed = new int[games];
+        score = new int[games];
+        powered = new boolean[games];
+        powerUpStartTick = new long[games];
+        ghostX = new int[GHOSTS][games];
+        ghostY = new int[GHOSTS][games];
+        ghostDirection = new int[GHOSTS][games];
+        ghostSpeed = new int[GHOSTS][games];
+        ghostSeed = new long[GHOSTS][games];
+        ghostGamma = new long[GHOSTS][games];
+        powerUpX = new int[POWER_UPS][games];
+        powerUpY = new int[POWER_UPS][games];
+        powerUpActive = new int[POWER_UPS][games];
+        respawnTick = new long[POWER_UPS][games];
+        powerUpSeed = new long[POWER_UPS][games];
+        powerUpGamma = new long[POWER_UPS][games];
+        caught = new int[games];
+        pending = new int[games];
+        for (int game = 0; game < games; game++) {
+            reset(game, game);
+        }
+    }
+
+    // Start a new game in the given slot, as new GameEngine(seed, levels) would
+    public void reset(int game, long seed) {
+        seeds[game] = seed;
+        currentLevel[game] = 0;
+        levelsCompleted[game] = 0;
+        alive[game] = 1;
+        levelCompleted[game] = false;
+        ticks[game] = 0;
+        loadLevel(game, 0);
+        LevelData data = level[game];
+        pacmanX[game] = data.pacmanX;
+        pacmanY[game] = data.pacmanY;
+        pacmanDirection[game] = LEFT;
+        desiredDirection[game] = LEFT;
+        pacmanSpeed[game] = GameEngine.NORMAL_SPEED;
+        nextPacmanSpeed[game] = GameEngine.NORMAL_SPEED;
+        score[game] = 0;
+        powered[game] = false;
+        powerUpStartTick[game] = 0;
+
+        // Same order of splits as the GameEngine constructor
+        GameRandom gameRandom = new GameRandom(seed);
+        for (int g = 0; g < GHOSTS; g++) {
+            GameRandom ghostRandom = gameRandom.split();
+            ghostSeed[g][game] = ghostRandom.getSeedState();
+            ghostGamma[g][game] = ghostRandom.getGamma();
+            ghostX[g][game] = data.ghostX[g];
+            ghostY[g][game] = data.ghostY[g];
+            ghostDirection[g][game] = nextInt(ghostSeed[g], ghostGamma[g], game, 4);
+            ghostSpeed[g][game] = GameEngine.NORMAL_SPEED;
+        }
+        for (int p = 0; p < POWER_UPS; p++) {
+            powerUpActive[p][game] = 0;
+        }
+        for (int p = 0; p < POWER_UPS; p++) {
+            GameRandom powerUpRandom = gameRandom.split();
+            powerUpSeed[p][game] = powerUpRandom.getSeedState();
+            powerUpGamma[p][game] = powerUpRandom.getGamma();
+            spawn(game, p);
+        }
+    }
+
+    // Advance every game by one tick. inputs[game] must be a Direction ordinal
+    // or NO_INPUT: other values are not checked and leave the batch half
+    // stepped or moved wrongly, so callers with untrusted inputs check them
+    // first (see VectorEnv.step()). status[game] receives the GameStatus
+    // ordinal. Finished games stay on GAME_OVER until reset. Returns how many
+    // games are still running.
+    public int step(byte[] inputs, byte[] status) {
+        updateClocks(inputs);
+        movePacman();
+        for (int g = 0; g < GHOSTS; g++) {
+            moveGhosts(g);
+        }
+        updatePowerUps();
+        findCaught();
+
+        int running = 0;
+        for (int game = 0; game < games; game++) {
+            if (alive[game] == 0) {
+                status[game] = GAME_OVER;
+                continue;
+            }
+            if (caught[game] != 0 && !powered[game]) {
+                alive[game] = 0;
+                status[game] = GAME_OVER;
+                continue;
+            }
+            status[game] = levelCompleted[game] ? LEVEL_COMPLETE : RUNNING;
+            running++;
+        }
+        return running;
+    }
+
+    // Inputs, tick counters, power-up timers and ghost modes
+    private void updateClocks(byte[] inputs) {
+        long[] phaseLimits = GhostModeScheduler.PHASE_TICKS;
+        for (int game = 0; game < games; game++) {
+            if (alive[game] == 0) {
+                continue;
+            }
+            if (inputs[game] != NO_INPUT) {
+                desiredDirection[game] = inputs[game];
+            }
+            levelCompleted[game] = false;
+            long tick = ++ticks[game];
+            if (powered[game] && tick - powerUpStartTick[game] >= Pacman.POWER_UP_DURATION) {
+                powered[game] = false;
+            }
+            int previous = mode[game];
+            int next;
+            if (powered[game]) {
+                next = FRIGHTENED;
+            } else {
+                phaseTicks[game]++;
+                if (phase[game] < phaseLimits.length && phaseTicks[game] >= phaseLimits[phase[game]]) {
+                    phase[game]++;
+                    phaseTicks[game] = 0;
+                }
+                next = phase[game] % 2 == 0 ? SCATTER : CHASE;
+            }
+            mode[game] = next;
+            if (next != previous && previous != FRIGHTENED) {
+                // Ghosts turn around; opposite directions differ in the lowest bit
+                for (int g = 0; g < GHOSTS; g++) {
+                    ghostDirection[g][game] ^= 1;
+                }
+            }
+        }
+    }
+
+    // Like moveGhosts(): a step that starts between two cells in the desired
+    // direction is always clear (see MoveTable), so those are done without
+    // branches and only the rest go through the table in movePacman(game).
+    // Every game that moved then checks for a dot under Pacman's center.
+    private void movePacman() {
+        int queued = 0;
+        int moved = games;
+        for (int game = 0; game < games; game++) {
+            int x = pacmanX[game];
+            int y = pacmanY[game];
+            int direction = desiredDirection[game];
+            int horizontal = (direction >> 1) ^ 1;
+            int offset = (y + ((x - y) & -horizontal)) % BLOCK_SIZE;
+            int fast = -((offset | -offset) >>> 31) & -alive[game];
+            // Both queues share one array, table moves from the start and fast
+            // moves from the end; each game is written to the next free slot of
+            // both and kept by one of them
+            pending[queued] = game;
+            pending[moved - 1] = game;
+            queued += alive[game] & ~fast;
+            moved += fast;
+            int delta = (((direction & 1) << 1) - 1) * pacmanSpeed[game] & fast;
+            pacmanX[game] = wrap(x + (delta & -horizontal), pixelWidth[game]);
+            pacmanY[game] = wrap(y + (delta & (horizontal - 1)), pixelHeight[game]);
+            pacmanDirection[game] ^= (pacmanDirection[game] ^ direction) & fast;
+        }
+        for (int i = moved; i < games; i++) {
+            int game = pending[i];
+            eatPoint(game, pacmanX[game] + HALF, pacmanY[game] + HALF);
+        }
+        for (int i = 0; i < queued; i++) {
+            movePacman(pending[i]);
+        }
+    }
+
+    private void movePacman(int game) {
+        int x = pacmanX[game];
+        int y = pacmanY[game];
+        LevelData data = level[game];
+        int direction = desiredDirection[game];
+        if (x % BLOCK_SIZE == 0 && y % BLOCK_SIZE == 0) {
+            pacmanSpeed[game] = nextPacmanSpeed[game];
+        }
+        long next = data.moves.step(x, y, DIRECTIONS[direction], pacmanSpeed[game]);
+        if (next == MoveTable.BLOCKED && direction != pacmanDirection[game]) {
+            direction = pacmanDirection[game];
+            next = data.moves.step(x, y, DIRECTIONS[direction], pacmanSpeed[game]);
+        }
+        if (next != MoveTable.BLOCKED) {
+            pacmanX[game] = MoveTable.x(next);
+            pacmanY[game] = MoveTable.y(next);
+            pacmanDirection[game] = direction;
+            eatPoint(game, pacmanX[game] + HALF, pacmanY[game] + HALF);
+        }
+    }
+
+    // Maze node under Pacman's center, as GameEngine.getPacmanNode()
+    private int pacmanNode(int game) {
+        LevelData data = level[game];
+        return data.graph.node(data.wrapX(pacmanX[game] + HALF) / BLOCK_SIZE,
+            data.wrapY(pacmanY[game] + HALF) / BLOCK_SIZE);
+    }
+
+    private void eatPoint(int game, int x, int y) {
+        LevelData data = level[game];
+        int col = x / BLOCK_SIZE;
+        int row = y / BLOCK_SIZE;
+        if (col >= data.width || row >= data.height) {
+            return;
+        }
+        int cell = row * data.width + col;
+        long[] gameDots = dots[game];
+        long mask = 1L << cell;
+        if ((gameDots[cell >>> 6] & mask) == 0) {
+            return;
+        }
+        gameDots[cell >>> 6] &= ~mask;
+        score[game] += GameEngine.DOT_POINTS;
+        if (--remainingDots[game] == 0) {
+            completeLevel(game);
+        }
+    }
+
+    private void completeLevel(int game) {
+        levelsCompleted[game]++;
+        int next = currentLevel[game] + 1;
+        if (next >= levels.getLevelCount()) {
+            next = 0;
+        }
+        currentLevel[game] = next;
+        loadLevel(game, next);
+        LevelData data = level[game];
+        pacmanX[game] = data.pacmanX;
+        pacmanY[game] = data.pacmanY;
+        pacmanDirection[game] = LEFT;
+        desiredDirection[game] = LEFT;
+        score[game] = 0;
+        powered[game] = false;
+        powerUpStartTick[game] = 0;
+        for (int g = 0; g < GHOSTS; g++) {
+            ghostX[g][game] = data.ghostX[g];
+            ghostY[g][game] = data.ghostY[g];
+            ghostDirection[g][game] = nextInt(ghostSeed[g], ghostGamma[g], game, 4);
+            ghostSpeed[g][game] = GameEngine.NORMAL_SPEED;
+        }
+        for (int p = 0; p < POWER_UPS; p++) {
+            powerUpActive[p][game] = 0;
+            respawnTick[p][game] = NO_RESPAWN;
+        }
+        for (int p = 0; p < POWER_UPS; p++) {
+            spawn(game, p);
+        }
+        levelCompleted[game] = true;
+    }
+
+    private void loadLevel(int game, int index) {
+        if (index < 0 || index >= levels.getLevelCount()) {
+            index = 0;
+        }
+        LevelData data = levelData(levels.getLevel(index));
+        level[game] = data;
+        pixelWidth[game] = data.pixelWidth;
+        pixelHeight[game] = data.pixelHeight;
+        int words = Level.words(data.width * data.height);
+        if (dots[game] == null || dots[game].length != words) {
+            dots[game] = new long[words];
+        }
+        data.level.copyDotsTo(dots[game]);
+        remainingDots[game] = data.level.getDotCount();
+        phase[game] = 0;
+        phaseTicks[game] = 0;
+        mode[game] = SCATTER;
+        nextPacmanSpeed[game] = levelsCompleted[game] >= GameEngine.FAST_PACMAN_LEVELS
+            ? GameEngine.FAST_PACMAN_SPEED : GameEngine.NORMAL_SPEED;
+    }
+
+    private LevelData levelData(Level key) {
+        LevelData data = cache.get(key);
+        if (data == null) {
+            data = new LevelData(key);
+            cache.put(key, data);
+        }
+        return data;
+    }
+
+    // Most moves start between two cells, where a ghost has no decision to
+    // take and no wall to check. Those are done in a first pass without
+    // branches (which would be mispredicted often, as the games are in no
+    // particular order); the games left over are queued for moveGhost().
+    private void moveGhosts(int g) {
+        int[] xs = ghostX[g];
+        int[] ys = ghostY[g];
+        int[] directions = ghostDirection[g];
+        int[] speeds = ghostSpeed[g];
+        int queued = 0;
+        for (int game = 0; game < games; game++) {
+            int x = xs[game];
+            int y = ys[game];
+            int direction = directions[game];
+            int horizontal = (direction >> 1) ^ 1;
+            int offset = (y + ((x - y) & -horizontal)) % BLOCK_SIZE;
+            // -1 to move here, 0 for moveGhost() or a finished game
+            int fast = -((offset | -offset) >>> 31) & -alive[game];
+            pending[queued] = game;
+            queued += alive[game] & ~fast;
+            // LEFT, RIGHT, UP, DOWN are 0-3: bit 0 gives the sign
+            int delta = (((direction & 1) << 1) - 1) * speeds[game] & fast;
+            xs[game] = wrap(x + (delta & -horizontal), pixelWidth[game]);
+            ys[game] = wrap(y + (delta & (horizontal - 1)), pixelHeight[game]);
+        }
+        for (int i = 0; i < queued; i++) {
+            moveGhost(g, pending[i]);
+        }
+    }
+
+    private static int wrap(int position, int size) {
+        position += (position >> 31) & size;
+        return position - (((size - 1 - position) >> 31) & size);
+    }
+
+    private void moveGhost(int g, int game) {
+        int x = ghostX[g][game];
+        int y = ghostY[g][game];
+        int direction = ghostDirection[g][game];
+        LevelData data = level[game];
+        if (x % BLOCK_SIZE == 0 && y % BLOCK_SIZE == 0) {
+            ghostSpeed[g][game] = mode[game] == FRIGHTENED
+                ? GameEngine.FRIGHTENED_GHOST_SPEED : GameEngine.NORMAL_SPEED;
+            MazeGraph graph = data.graph;
+            int node = graph.node(x / BLOCK_SIZE, y / BLOCK_SIZE);
+            if (node >= 0 && (graph.isJunction(node) || graph.neighbor(node, DIRECTIONS[direction]) < 0)) {
+                Direction chosen = chooseDirection(g, game, node);
+                if (chosen != null) {
+                    direction = chosen.ordinal();
+                }
+            }
+        }
+        long next = data.moves.step(x, y, DIRECTIONS[direction], ghostSpeed[g][game]);
+        if (next != MoveTable.BLOCKED) {
+            ghostX[g][game] = MoveTable.x(next);
+            ghostY[g][game] = MoveTable.y(next);
+        } else {
+            direction = nextInt(ghostSeed[g], ghostGamma[g], game, 4);
+        }
+        ghostDirection[g][game] = direction;
+    }
+
+    // The strategies GameEngine gives its three ghosts: chase, ambush and a
+    // shy patrol, all heading to their own corner in SCATTER
+    private Direction chooseDirection(int g, int game, int node) {
+        LevelData data = level[game];
+        MazeGraph graph = data.graph;
+        Direction heading = DIRECTIONS[ghostDirection[g][game]];
+        int target = pacmanNode(game);
+        if (mode[game] == FRIGHTENED) {
+            random.setState(ghostSeed[g][game], ghostGamma[g][game]);
+            Direction chosen = FrightenedStrategy.flee(graph, node, heading, target, random);
+            ghostSeed[g][game] = random.getSeedState();
+            return chosen;
+        }
+        if (mode[game] == SCATTER) {
+            target = data.corners[g];
+        } else if (g == 1) {
+            target = AmbushStrategy.ahead(graph, target, DIRECTIONS[pacmanDirection[game]]);
+        } else if (g == 2 && (target < 0 || graph.distance(node, target) <= GameEngine.SHY_GHOST_DISTANCE)) {
+            target = data.corners[g];
+        }
+        return TargetingStrategy.towards(graph, node, heading, target);
+    }
+
+    // Respawns first, then what Pacman eats, as in GameEngine.step()
+    private void updatePowerUps() {
+        for (int p = 0; p < POWER_UPS; p++) {
+            long[] due = respawnTick[p];
+            for (int game = 0; game < games; game++) {
+                if (ticks[game] >= due[game] && alive[game] != 0) {
+                    spawn(game, p);
+                }
+            }
+        }
+        int[] touched = pending;
+        for (int p = 0; p < POWER_UPS; p++) {
+            int[] ux = powerUpX[p];
+            int[] uy = powerUpY[p];
+            int[] active = powerUpActive[p];
+            for (int i = 0; i < games; i++) {
+                int overlap = (((SIZE - 1 - Math.abs(pacmanX[i] - ux[i])) | (SIZE - 1 - Math.abs(pacmanY[i] - uy[i]))) >>> 31) ^ 1;
+                int bit = (overlap & active[i] & alive[i]) << p;
+                touched[i] = p == 0 ? bit : touched[i] | bit;
+            }
+        }
+        for (int game = 0; game < games; game++) {
+            if (touched[game] != 0) {
+                eatPowerUps(game, touched[game]);
+            }
+        }
+    }
+
+    private void eatPowerUps(int game, int touched) {
+        long tick = ticks[game];
+        for (int p = 0; p < POWER_UPS; p++) {
+            if ((touched & (1 << p)) != 0) {
+                PowerUpType type = POWER_UP_TYPES[p];
+                powerUpActive[p][game] = 0;
+                respawnTick[p][game] = tick + type.getRespawnTicks();
+                score[game] += type.getPoints();
+                if (type.powersUp()) {
+                    powered[game] = true;
+                    powerUpStartTick[game] = tick;
+                }
+            }
+        }
+    }
+
+    // caught[game] = 1 if any ghost overlaps Pacman. All sprites have the same
+    // size, so the rectangle test is |dx| < SIZE and |dy| < SIZE, computed
+    // without branches over whole arrays so the JIT can use SIMD for it.
+    private void findCaught() {
+        int[] x = pacmanX;
+        int[] y = pacmanY;
+        for (int g = 0; g < GHOSTS; g++) {
+            int[] gx = ghostX[g];
+            int[] gy = ghostY[g];
+            if (g == 0) {
+                for (int i = 0; i < games; i++) {
+                    caught[i] = (((SIZE - 1 - Math.abs(x[i] - gx[i])) | (SIZE - 1 - Math.abs(y[i] - gy[i]))) >>> 31) ^ 1;
+                }
+            } else {
+                for (int i = 0; i < games; i++) {
+                    caught[i] |= (((SIZE - 1 - Math.abs(x[i] - gx[i])) | (SIZE - 1 - Math.abs(y[i] - gy[i]))) >>> 31) ^ 1;
+                }
+            }
+        }
+    }
+
+    private void spawn(int game, int p) {
+        int cell = randomSpawnCell(game, p);
+        int width = level[game].width;
+        powerUpX[p][game] = cell % width * BLOCK_SIZE;
+        powerUpY[p][game] = cell / width * BLOCK_SIZE;
+        powerUpActive[p][game] = 1;
+        respawnTick[p][game] = NO_RESPAWN;
+    }
+
+    // Same draw as GameEngine.randomSpawnCell, with the power-up's own stream
+    private int randomSpawnCell(int game, int p) {
+        OpenCells open = level[game].open;
+        if (spawnMarks.length < open.size()) {
+            spawnMarks = new int[open.size()];
+        }
+        if (++spawnStamp == 0) {
+            Arrays.fill(spawnMarks, 0);
+            spawnStamp = 1;
+        }
+        int clearance = GameEngine.SPAWN_CLEARANCE;
+        int excluded = excludeAround(game, open, pacmanX[game], pacmanY[game], clearance, 0);
+        for (int g = 0; g < GHOSTS; g++) {
+            excluded = excludeAround(game, open, ghostX[g][game], ghostY[g][game], clearance, excluded);
+        }
+        for (int other = 0; other < POWER_UPS; other++) {
+            if (powerUpActive[other][game] != 0) {
+                excluded = excludeAround(game, open, powerUpX[other][game], powerUpY[other][game], 0, excluded);
+            }
+        }
+        random.setState(powerUpSeed[p][game], powerUpGamma[p][game]);
+        int cell;
+        if (excluded == open.size()) {
+            cell = open.cell(random.nextInt(open.size()));
+        } else if (2 * excluded > open.size()) {
+            int n = random.nextInt(open.size() - excluded);
+            int slot = 0;
+            while (spawnMarks[slot] == spawnStamp || n-- != 0) {
+                slot++;
+            }
+            cell = open.cell(slot);
+        } else {
+            int slot = random.nextInt(open.size());
+            while (spawnMarks[slot] == spawnStamp) {
+                slot = random.nextInt(open.size());
+            }
+            cell = open.cell(slot);
+        }
+        powerUpSeed[p][game] = random.getSeedState();
+        return cell;
+    }
+
+    private int excludeAround(int game, OpenCells open, int x, int y, int radius, int excluded) {
+        LevelData data = level[game];
+        int col = data.wrapX(x + HALF) / BLOCK_SIZE;
+        int row = data.wrapY(y + HALF) / BLOCK_SIZE;
+        for (int dy = -radius; dy <= radius; dy++) {
+            int rowStart = Math.floorMod(row + dy, data.height) * data.width;
+            for (int dx = -radius; dx <= radius; dx++) {
+                int c = col + dx;
+                int slot = open.slot(rowStart + (c < 0 ? c + data.width : c >= data.width ? c - data.width : c));
+                if (slot >= 0 && spawnMarks[slot] != spawnStamp) {
+                    spawnMarks[slot] = spawnStamp;
+                    excluded++;
+                }
+            }
+        }
+        return excluded;
+    }
+
+    private int nextInt(long[] seedStates, long[] gammas, int game, int bound) {
+        random.setState(seedStates[game], gammas[game]);
+        int value = random.nextInt(bound);
+        seedStates[game] = random.getSeedState();
+        return value;
+    }
+
+    public int getGameCount() {
+        return games;
+    }
+
+    public LevelSource getLevelSource() {
+        return levels;
+    }
+
+    public long getSeed(int game) {
+        return seeds[game];
+    }
+
+    public Level getLevel(int game) {
+        return level[game].level;
+    }
+
+    public int getCurrentLevel(int game) {
+        return currentLevel[game];
+    }
+
+    public int getLevelsCompleted(int game) {
+        return levelsCompleted[game];
+    }
+
+    public boolean isGameOver(int game) {
+        return alive[game] == 0;
+    }
+
+    public long getTicks(int game) {
+        return ticks[game];
+    }
+
+    public int getScore(int game) {
+        return score[game];
+    }
+
+    public int getRemainingDots(int game) {
+        return remainingDots[game];
+    }
+
+    public boolean hasDot(int game, int col, int row) {
+        int cell = row * level[game].width + col;
+        return (dots[game][cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public GhostMode getGhostMode(int game) {
+        return MODES[mode[game]];
+    }
+
+    public int getPacmanX(int game) {
+        return pacmanX[game];
+    }
+
+    public int getPacmanY(int game) {
+        return pacmanY[game];
+    }
+
+    public Direction getPacmanDirection(int game) {
+        return DIRECTIONS[pacmanDirection[game]];
+    }
+
+    public boolean isPowered(int game) {
+        return powered[game];
+    }
+
+    public int getGhostX(int ghost, int game) {
+        return ghostX[ghost][game];
+    }
+
+    public int getGhostY(int ghost, int game) {
+        return ghostY[ghost][game];
+    }
+
+    public int getPowerUpCount() {
+        return POWER_UPS;
+    }
+
+    public PowerUpType getPowerUpType(int powerUp) {
+        return POWER_UP_TYPES[powerUp];
+    }
+
+    public boolean isPowerUpActive(int powerUp, int game) {
+        return powerUpActive[powerUp][game] != 0;
+    }
+
+    public int getPowerUpX(int powerUp, int game) {
+        return powerUpX[powerUp][game];
+    }
+
+    public int getPowerUpY(int powerUp, int game) {
+        return powerUpY[powerUp][game];
+    }
+
+    // Everything the batch needs from a level, resolved once per level
+    private static final class LevelData {
+        final Level level;
+        final MazeGraph graph;
+        final MoveTable moves;
+        final OpenCells open;
+        final int width;
+        final int height;
+        final int pixelWidth;
+        final int pixelHeight;
+        final int pacmanX;
+        final int pacmanY;
+        final int[] ghostX = new int[GHOSTS];
+        final int[] ghostY = new int[GHOSTS];
+        final int[] corners = new int[GHOSTS];
+
+        LevelData(Level level) {
+            this.level = level;
+            graph = level.getMazeGraph();
+            moves = level.getMoveTable();
+            open = level.getOpenCells();
+            width = level.getWidth();
+            height = level.getHeight();
+            pixelWidth = width * BLOCK_SIZE;
+            pixelHeight = height * BLOCK_SIZE;
+            pacmanX = level.getPacmanCol() * BLOCK_SIZE;
+            pacmanY = level.getPacmanRow() * BLOCK_SIZE;
+            for (int g = 0; g < GHOSTS; g++) {
+                ghostX[g] = level.getGhostCol(g % level.getGhostStartCount()) * BLOCK_SIZE;
+                ghostY[g] = level.getGhostRow(g % level.getGhostStartCount()) * BLOCK_SIZE;
+                corners[g] = PatrolStrategy.nearestNode(graph, SCATTER_CORNERS[g]);
+            }
+        }
+
+        int wrapX(int x) {
+            return x >= pixelWidth ? x - pixelWidth : x;
+        }
+
+        int wrapY(int y) {
+            return y >= pixelHeight ? y - pixelHeight : y;
+        }
+    }
+}
@@ -1,318 +1,354 @@
-import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.swing.SwingUtilities;
 
-public class Board extends JPanel implements ActionListener {
-    private Timer timer;
-    private Pacman pacman;
-    private Ghost[] ghosts;
-    private PowerUp powerUp;
-    private int currentLevel = 0;
-    private int[][] levelData;
-    private boolean gameOver = false;
-    private static final int BLOCK_SIZE = 20;
-    private static final int BOARD_WIDTH = 20;
-    private static final int BOARD_HEIGHT = 20;
-    private static final int SPRITE_SIZE = 20;
-    private static final int PACMAN_START_X = 180;
-    private static final int PACMAN_START_Y = 300;
-    private static final int GHOST1_START_X = 180;
-    private static final int GHOST1_START_Y = 180;
-    private static final int GHOST2_START_X = 60;
-    private static final int GHOST2_START_Y = 60;
-    private static final int GHOST3_START_X = 300;
-    private static final int GHOST3_START_Y = 60;
-    
-    // Códigos para el mapa: 0=pared, 1=punto, 2=camino vacío
-    private static final int[][][] LEVELS = {
-        // Nivel 1 - Diseño simple
-        {
-            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
-            {0,1,1,1,1,1,1,1,1,0,0,1,1,1,1,1,1,1,1,0},
-            {0,1,0,0,1,0,0,0,1,0,0,1,0,0,0,1,0,0,1,0},
-            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
-            {0,1,0,0,1,0,1,0,0,0,0,0,0,1,0,1,0,0,1,0},
-            {0,1,1,1,1,0,1,1,1,0,0,1,1,1,0,1,1,1,1,0},
-            {0,0,0,0,1,0,0,0,1,0,0,1,0,0,0,1,0,0,0,0},
-            {0,0,0,0,1,0,1,1,1,1,1,1,1,1,0,1,0,0,0,0},
-            {0,0,0,0,1,0,1,0,0,2,2,0,0,1,0,1,0,0,0,0},
-            {2,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,2},
-            {0,0,0,0,1,0,1,0,0,0,0,0,0,1,0,1,0,0,0,0},
-            {0,0,0,0,1,0,1,1,1,1,1,1,1,1,0,1,0,0,0,0},
-            {0,0,0,0,1,0,1,0,0,0,0,0,0,1,0,1,0,0,0,0},
-            {0,1,1,1,1,1,1,1,1,0,0,1,1,1,1,1,1,1,1,0},
-            {0,1,0,0,1,0,0,0,1,0,0,1,0,0,0,1,0,0,1,0},
-            {0,1,1,0,1,1,1,1,1,1,1,1,1,1,1,1,0,1,1,0},
-            {0,0,1,0,1,0,1,0,0,0,0,0,0,1,0,1,0,1,0,0},
-            {0,1,1,1,1,0,1,1,1,0,0,1,1,1,0,1,1,1,1,0},
-            {0,1,0,0,0,0,0,0,1,0,0,1,0,0,0,0,0,0,1,0},
-            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}
-        },
-        // Nivel 2 - Diseño con más paredes
-        {
-            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
-            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
-            {0,1,0,0,0,0,1,0,0,0,0,0,0,1,0,0,0,0,1,0},
-            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
-            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
-            {0,1,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,1,0},
-            {0,1,0,1,0,1,0,0,0,0,0,0,0,0,1,0,1,0,1,0},
-            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
-            {0,1,0,0,0,0,0,0,1,0,0,1,0,0,0,0,0,0,1,0},
-            {2,1,1,1,1,1,1,1,1,2,2,1,1,1,1,1,1,1,1,2},
-            {0,1,0,0,0,0,0,0,1,0,0,1,0,0,0,0,0,0,1,0},
-            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
-            {0,1,0,1,0,1,0,0,0,0,0,0,0,0,1,0,1,0,1,0},
-            {0,1,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,1,0},
-            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
-            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
-            {0,1,0,0,0,0,1,0,0,0,0,0,0,1,0,0,0,0,1,0},
-            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
-            {0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1,0},
-            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}
-        },
-        // Nivel 3 - Diseño complejo
-        {
-            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
-            {0,1,1,1,1,1,1,0,1,1,1,1,0,1,1,1,1,1,1,0},
-            {0,1,0,0,0,0,1,0,1,0,0,1,0,1,0,0,0,0,1,0},
-            {0,1,0,1,1,0,1,1,1,0,0,1,1,1,0,1,1,0,1,0},
-            {0,1,0,1,1,0,1,0,0,0,0,0,0,1,0,1,1,0,1,0},
-            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
-            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
-            {0,1,0,1,1,1,1,0,1,0,0,1,0,1,1,1,1,0,1,0},
-            {0,1,0,0,0,0,1,0,1,0,0,1,0,1,0,0,0,0,1,0},
-            {2,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,2},
-            {0,1,0,0,0,0,1,0,0,0,0,0,0,1,0,0,0,0,1,0},
-            {0,1,0,1,1,1,1,0,1,0,0,1,0,1,1,1,1,0,1,0},
-            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
-            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
-            {0,1,0,1,1,0,1,0,0,0,0,0,0,1,0,1,1,0,1,0},
-            {0,1,0,1,1,0,1,1,1,0,0,1,1,1,0,1,1,0,1,0},
-            {0,1,0,0,0,0,1,0,1,0,0,1,0,1,0,0,0,0,1,0},
-            {0,1,1,1,1,1,1,0,1,1,1,1,0,1,1,1,1,1,1,0},
-            {0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1,0},
-            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}
-        }
-    };
+// Vista del juego con renderizado activo: un GameLoop en su propio hilo avanza
+// el GameEngine a ritmo fijo con update() y dibuja cada frame con render() sobre
+// un BufferStrategy, interpolando las posiciones entre ticks.
+// Las paredes y los puntos se pintan una vez por nivel en una imagen y los
+// sprites salen todos de SpriteAtlas, generado al crear el tablero.
+// Con -Dpacman.replays=<directorio> cada partida se graba para ReplayPlayer y
+// con -Dpacman.levels=<pack> se juegan los niveles de un LevelPack
+// (-Dpacman.levels=endless para laberintos generados sin fin). Con
+// -Dpacman.metrics[=segundos] publica GameMetrics por JMX, en la salida y en JFR.
+public class Board extends Canvas implements GameListener {
+    private static final int BLOCK_SIZE = GameEngine.BLOCK_SIZE;
+    private static final int HUD_HEIGHT = 20;
+    private static final Color OVERLAY_COLOR = new Color(0, 0, 0, 180);
+    private static final Font GAME_OVER_FONT = new Font("Arial", Font.BOLD, 48);
+    private static final Font RESTART_FONT = new Font("Arial", Font.PLAIN, 20);
+    private static final String GAME_OVER_TEXT = "GAME OVER";
+    private static final String RESTART_TEXT = "Press SPACE to restart";
+    private static final String REPLAY_PROPERTY = "pacman.replays";
+    private static final String LEVELS_PROPERTY = "pacman.levels";
+    private static final String AUTOPILOT_TEXT = "AUTO";
+    private final SpriteAtlas atlas = SpriteAtlas.INSTANCE;
+    private GameLoop loop;
+    private GameEngine engine;
+    private final LevelSource levels = levelSource();
+    private KeyboardController keyboard = new KeyboardController();
+    // Created on first use: the search threads and trees are not free
+    private MctsController autopilot;
+    // Toggled with the A key from the event thread
+    private volatile boolean autopilotEnabled = false;
+    private ReplayRecorder recorder;
+    // Null unless -Dpacman.metrics is set
+    private final GameMetrics gameMetrics = GameMetrics.fromSystemProperties();
+    private BufferedImage mazeLayer;
+    private boolean mazeLayerValid = false;
+    // Set from the event thread, applied by the game loop thread
+    private volatile boolean restartRequested = false;
+    // HUD text is rebuilt only when the score or level changes
+    private String scoreText = "";
+    private String levelText = "";
+    private int textScore = -1;
+    private int textLevel = -1;
+    // Translucent fills allocate on every frame, so the overlay is drawn once
+    // per panel size and then blitted
+    private BufferedImage gameOverOverlay;
 
     public Board() {
         setFocusable(true);
         setBackground(Color.BLACK);
-        loadLevel(currentLevel);
-        pacman = new Pacman(PACMAN_START_X, PACMAN_START_Y, this);
-        ghosts = new Ghost[] {
-            new Ghost(GHOST1_START_X, GHOST1_START_Y, Color.RED, this),
-            new Ghost(GHOST2_START_X, GHOST2_START_Y, Color.PINK, this),
-            new Ghost(GHOST3_START_X, GHOST3_START_Y, Color.CYAN, this)
-        };
-        powerUp = new PowerUp(this);
-        timer = new Timer(40, this);
-        timer.start();
+        // Frames are drawn by the game loop, not by AWT repaint requests
+        setIgnoreRepaint(true);
+        newGame();
         addKeyListener(new PacmanKeyAdapter());
     }
-    
-    private void loadLevel(int level) {
-        if (level < 0 || level >= LEVELS.length) {
-            level = 0;
+
+    // Each game gets its own engine and seed so a recording replays on its own
+    private void newGame() {
+        engine = new GameEngine(System.nanoTime(), levels);
+        engine.addListener(this);
+        if (gameMetrics != null) {
+            engine.addListener(gameMetrics);
         }
-        levelData = new int[BOARD_HEIGHT][BOARD_WIDTH];
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                levelData[i][j] = LEVELS[level][i][j];
+        levelLoaded(engine.getCurrentLevel());
+        startRecording();
+    }
+
+    private static LevelSource levelSource() {
+        String pack = System.getProperty(LEVELS_PROPERTY);
+        if (pack != null) {
+            try {
+                return LevelSource.open(pack);
+            } catch (IOException e) {
+                System.err.println("Using the built-in levels: " + e);
             }
         }
+        return BuiltInLevels.INSTANCE;
     }
-    
-    public int getSpriteSize() {
-        return SPRITE_SIZE;
+
+    // Mazes can have any size: grow or shrink the window to fit the new one
+    private void fitToMaze() {
+        Dimension size = new Dimension(engine.getBoardWidth() * BLOCK_SIZE,
+            engine.getBoardHeight() * BLOCK_SIZE + HUD_HEIGHT);
+        if (!isDisplayable()) {
+            setPreferredSize(size);
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (size.equals(getPreferredSize())) {
+                return;
+            }
+            setPreferredSize(size);
+            Window window = SwingUtilities.getWindowAncestor(this);
+            if (window != null) {
+                window.pack();
+            }
+        });
     }
-    
-    public boolean isWall(int x, int y) {
-        // Apply wrapping before checking wall collision
-        x = wrapX(x);
-        y = wrapY(y);
-        
-        int col = x / BLOCK_SIZE;
-        int row = y / BLOCK_SIZE;
-        if (row < 0 || row >= BOARD_HEIGHT || col < 0 || col >= BOARD_WIDTH) {
-            return true;
+
+    private void startRecording() {
+        String directory = System.getProperty(REPLAY_PROPERTY);
+        if (directory == null) {
+            return;
+        }
+        try {
+            Path dir = Files.createDirectories(Paths.get(directory));
+            Path file = dir.resolve(engine.getSeed() + ".replay");
+            recorder = new ReplayRecorder(file, engine);
+        } catch (IOException e) {
+            System.err.println("Replay recording disabled: " + e);
         }
-        return levelData[row][col] == 0;
     }
-    
-    public int wrapX(int x) {
-        int boardPixelWidth = BOARD_WIDTH * BLOCK_SIZE;
-        if (x < 0) {
-            return x + boardPixelWidth;
-        } else if (x >= boardPixelWidth) {
-            return x - boardPixelWidth;
+
+    private void record(Direction input) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.record(input);
+            if (engine.isGameOver()) {
+                stopRecording();
+            }
+        } catch (IOException e) {
+            System.err.println("Replay recording disabled: " + e);
+            recorder = null;
         }
-        return x;
     }
-    
-    public int wrapY(int y) {
-        int boardPixelHeight = BOARD_HEIGHT * BLOCK_SIZE;
-        if (y < 0) {
-            return y + boardPixelHeight;
-        } else if (y >= boardPixelHeight) {
-            return y - boardPixelHeight;
+
+    private void stopRecording() throws IOException {
+        try {
+            recorder.finish(engine);
+        } finally {
+            recorder.close();
+            recorder = null;
         }
-        return y;
     }
-    
-    public void eatPoint(int x, int y) {
-        int col = x / BLOCK_SIZE;
-        int row = y / BLOCK_SIZE;
-        if (row >= 0 && row < BOARD_HEIGHT && col >= 0 && col < BOARD_WIDTH) {
-            if (levelData[row][col] == 1) {
-                levelData[row][col] = 2;
-                pacman.addScore(10);
-                checkLevelComplete();
+
+    // Start the game loop; the board must already be displayable
+    public void start() {
+        createBufferStrategy(2);
+        BufferStrategy strategy = getBufferStrategy();
+        loop = new GameLoop(this, strategy, displayRefreshRate(), gameMetrics);
+        loop.start();
+        // Game exits with EXIT_ON_CLOSE, which runs the hooks too
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "board-shutdown"));
+    }
+
+    // Stop the game loop and finish the recording of a game still in
+    // progress, so quitting mid-game leaves a complete replay
+    public synchronized void stop() {
+        if (loop != null) {
+            loop.stop();
+        }
+        if (recorder != null) {
+            try {
+                stopRecording();
+            } catch (IOException e) {
+                System.err.println("Replay recording lost: " + e);
             }
         }
     }
-    
-    private void checkLevelComplete() {
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (levelData[i][j] == 1) {
-                    return;
-                }
+
+    private int displayRefreshRate() {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            int rate = config.getDevice().getDisplayMode().getRefreshRate();
+            if (rate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return rate;
+            }
+        }
+        return 60;
+    }
+
+    public LoopMetrics getMetrics() {
+        return loop == null ? null : loop.getMetrics();
+    }
+
+    // Advance the simulation by one fixed tick (game loop thread); locked
+    // against stop() so a recording is never finished mid-tick
+    public synchronized void update() {
+        if (restartRequested) {
+            restartRequested = false;
+            if (engine.isGameOver()) {
+                newGame();
             }
         }
-        // Todos los puntos comidos, avanzar al siguiente nivel
-        currentLevel++;
-        if (currentLevel >= LEVELS.length) {
-            currentLevel = 0; // Reiniciar al primer nivel
+        if (!engine.isGameOver()) {
+            PacmanController controller = controller();
+            Direction input = controller.nextDirection(engine);
+            if (input != null && controller == keyboard && gameMetrics != null) {
+                gameMetrics.inputApplied(keyboard.getLastPressedNanos());
+            }
+            engine.step(input);
+            record(input);
         }
-        loadLevel(currentLevel);
-        pacman.reset();
-        powerUp.reset();
     }
 
-    @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        drawBoard(g);
-        powerUp.draw(g);
-        pacman.draw(g);
-        for (Ghost ghost : ghosts) {
-            ghost.draw(g);
+    private PacmanController controller() {
+        if (!autopilotEnabled) {
+            return keyboard;
+        }
+        if (autopilot == null) {
+            autopilot = new MctsController(new GameRandom(System.nanoTime()));
+        }
+        return autopilot;
+    }
+
+    // Draw a full frame; alpha is how far we are between the last two ticks
+    public void render(Graphics g, double alpha) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (!mazeLayerValid) {
+            renderMazeLayer();
+        }
+        g.drawImage(mazeLayer, 0, 0, null);
+        drawHud(g);
+        for (PowerUp powerUp : engine.getPowerUps()) {
+            powerUp.draw(g);
+        }
+        engine.getPacman().draw(g, alpha);
+        for (Ghost ghost : engine.getGhosts()) {
+            ghost.draw(g, alpha);
         }
         
-        if (gameOver) {
+        if (engine.isGameOver()) {
             drawGameOver(g);
         }
     }
 
-    private void drawBoard(Graphics g) {
+    // Pre-render walls and dots for the current level
+    private void renderMazeLayer() {
+        int width = engine.getBoardWidth() * BLOCK_SIZE;
+        int height = engine.getBoardHeight() * BLOCK_SIZE;
+        if (mazeLayer == null || mazeLayer.getWidth() != width || mazeLayer.getHeight() != height) {
+            GraphicsConfiguration config = getGraphicsConfiguration();
+            mazeLayer = config != null
+                ? config.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics g = mazeLayer.getGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width, height);
         // Dibujar paredes y puntos
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (levelData[i][j] == 0) {
+        for (int i = 0; i < engine.getBoardHeight(); i++) {
+            for (int j = 0; j < engine.getBoardWidth(); j++) {
+                int cell = engine.getCell(i, j);
+                if (cell == 0) {
                     // Dibujar pared
                     g.setColor(Color.BLUE);
                     g.fillRect(j * BLOCK_SIZE, i * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
-                } else if (levelData[i][j] == 1) {
+                } else if (cell == 1) {
                     // Dibujar punto
-                    g.setColor(Color.WHITE);
-                    g.fillOval(j * BLOCK_SIZE + 7, i * BLOCK_SIZE + 7, 6, 6);
+                    atlas.drawDot(g, j * BLOCK_SIZE, i * BLOCK_SIZE);
                 }
             }
         }
-        
+        g.dispose();
+        mazeLayerValid = true;
+    }
+
+    private void drawHud(Graphics g) {
         // Dibujar información
+        int score = engine.getPacman().getScore();
+        int level = engine.getCurrentLevel();
+        if (score != textScore) {
+            textScore = score;
+            scoreText = "Score: " + score;
+        }
+        if (level != textLevel) {
+            textLevel = level;
+            levelText = "Level: " + (level + 1);
+        }
+        int hudY = engine.getBoardHeight() * BLOCK_SIZE + HUD_HEIGHT / 2;
         g.setColor(Color.YELLOW);
-        g.drawString("Score: " + pacman.getScore(), 10, 410);
-        g.drawString("Level: " + (currentLevel + 1), 150, 410);
+        g.drawString(scoreText, 10, hudY);
+        g.drawString(levelText, 150, hudY);
+        if (autopilotEnabled) {
+            g.drawString(AUTOPILOT_TEXT, 290, hudY);
+        }
     }
     
     private void drawGameOver(Graphics g) {
-        g.setColor(new Color(0, 0, 0, 180));
-        g.fillRect(0, 0, getWidth(), getHeight());
+        if (gameOverOverlay == null || gameOverOverlay.getWidth() != getWidth()
+            || gameOverOverlay.getHeight() != getHeight()) {
+            gameOverOverlay = renderGameOverOverlay(getWidth(), getHeight());
+        }
+        g.drawImage(gameOverOverlay, 0, 0, null);
+    }
+
+    private BufferedImage renderGameOverOverlay(int width, int height) {
+        BufferedImage overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = overlay.getGraphics();
+        g.setColor(OVERLAY_COLOR);
+        g.fillRect(0, 0, width, height);
         
         g.setColor(Color.RED);
-        g.setFont(new Font("Arial", Font.BOLD, 48));
+        g.setFont(GAME_OVER_FONT);
         FontMetrics fm = g.getFontMetrics();
-        String gameOverText = "GAME OVER";
-        int x = (getWidth() - fm.stringWidth(gameOverText)) / 2;
-        int y = getHeight() / 2 - 20;
-        g.drawString(gameOverText, x, y);
+        int x = (width - fm.stringWidth(GAME_OVER_TEXT)) / 2;
+        int y = height / 2 - 20;
+        g.drawString(GAME_OVER_TEXT, x, y);
         
         g.setColor(Color.WHITE);
-        g.setFont(new Font("Arial", Font.PLAIN, 20));
+        g.setFont(RESTART_FONT);
         fm = g.getFontMetrics();
-        String restartText = "Press SPACE to restart";
-        x = (getWidth() - fm.stringWidth(restartText)) / 2;
-        y = getHeight() / 2 + 40;
-        g.drawString(restartText, x, y);
+        x = (width - fm.stringWidth(RESTART_TEXT)) / 2;
+        y = height / 2 + 40;
+        g.drawString(RESTART_TEXT, x, y);
+        g.dispose();
+        return overlay;
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (!gameOver) {
-            pacman.move();
-            for (Ghost ghost : ghosts) {
-                ghost.move();
-            }
-            checkPowerUpCollision();
-            checkCollisions();
-        }
-        repaint();
+    public GameEngine getEngine() {
+        return engine;
     }
-    
-    private void checkCollisions() {
-        int pacmanX = pacman.getX();
-        int pacmanY = pacman.getY();
-        int pacmanSize = pacman.getSpriteSize();
-        
-        // Don't check collision if pacman is powered up
-        if (pacman.isPowered()) {
-            return;
-        }
-        
-        for (Ghost ghost : ghosts) {
-            int ghostX = ghost.getX();
-            int ghostY = ghost.getY();
-            int ghostSize = ghost.getSpriteSize();
-            
-            // Detectar colisión usando rectángulos
-            if (pacmanX < ghostX + ghostSize &&
-                pacmanX + pacmanSize > ghostX &&
-                pacmanY < ghostY + ghostSize &&
-                pacmanY + pacmanSize > ghostY) {
-                gameOver = true;
-                break;
-            }
-        }
-    }
-    
-    private void checkPowerUpCollision() {
-        if (powerUp.checkCollision(pacman.getX(), pacman.getY(), pacman.getSpriteSize())) {
-            pacman.activatePowerUp();
+
+    @Override
+    public void dotEaten(int col, int row) {
+        if (mazeLayerValid) {
+            // Borrar solo el punto comido de la capa del laberinto
+            Graphics g = mazeLayer.getGraphics();
+            g.setColor(Color.BLACK);
+            g.fillRect(col * BLOCK_SIZE, row * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+            g.dispose();
         }
     }
-    
-    private void restartGame() {
-        gameOver = false;
-        currentLevel = 0;
-        loadLevel(currentLevel);
-        pacman.reset();
-        powerUp.reset();
-        for (Ghost ghost : ghosts) {
-            ghost.reset();
-        }
+
+    @Override
+    public void levelLoaded(int level) {
+        mazeLayerValid = false;
+        fitToMaze();
     }
 
     private class PacmanKeyAdapter extends KeyAdapter {
         @Override
         public void keyPressed(KeyEvent e) {
-            if (gameOver && e.getKeyCode() == KeyEvent.VK_SPACE) {
-                restartGame();
-            } else if (!gameOver) {
-                pacman.keyPressed(e);
+            if (e.getKeyCode() == KeyEvent.VK_SPACE) {
+                restartRequested = true;
+            } else if (e.getKeyCode() == KeyEvent.VK_A) {
+                autopilotEnabled = !autopilotEnabled;
+            } else {
+                keyboard.keyPressed(e);
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+// Los tres niveles originales del juego, compilados una vez al cargar la clase.
+public final class BuiltInLevels implements LevelSource {
+    // Códigos para el mapa: 0=pared, 1=punto, 2=camino vacío
+    private static final int[][][] LEVEL_DATA = {
+        // Nivel 1 - Diseño simple
+        {
+            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
+            {0,1,1,1,1,1,1,1,1,0,0,1,1,1,1,1,1,1,1,0},
+            {0,1,0,0,1,0,0,0,1,0,0,1,0,0,0,1,0,0,1,0},
+            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
+            {0,1,0,0,1,0,1,0,0,0,0,0,0,1,0,1,0,0,1,0},
+            {0,1,1,1,1,0,1,1,1,0,0,1,1,1,0,1,1,1,1,0},
+            {0,0,0,0,1,0,0,0,1,0,0,1,0,0,0,1,0,0,0,0},
+            {0,0,0,0,1,0,1,1,1,1,1,1,1,1,0,1,0,0,0,0},
+            {0,0,0,0,1,0,1,0,0,2,2,0,0,1,0,1,0,0,0,0},
+            {2,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,2},
+            {0,0,0,0,1,0,1,0,0,0,0,0,0,1,0,1,0,0,0,0},
+            {0,0,0,0,1,0,1,1,1,1,1,1,1,1,0,1,0,0,0,0},
+            {0,0,0,0,1,0,1,0,0,0,0,0,0,1,0,1,0,0,0,0},
+            {0,1,1,1,1,1,1,1,1,0,0,1,1,1,1,1,1,1,1,0},
+            {0,1,0,0,1,0,0,0,1,0,0,1,0,0,0,1,0,0,1,0},
+            {0,1,1,0,1,1,1,1,1,1,1,1,1,1,1,1,0,1,1,0},
+            {0,0,1,0,1,0,1,0,0,0,0,0,0,1,0,1,0,1,0,0},
+            {0,1,1,1,1,0,1,1,1,0,0,1,1,1,0,1,1,1,1,0},
+            {0,1,0,0,0,0,0,0,1,0,0,1,0,0,0,0,0,0,1,0},
+            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}
+        },
+        // Nivel 2 - Diseño con más paredes
+        {
+            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
+            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
+            {0,1,0,0,0,0,1,0,0,0,0,0,0,1,0,0,0,0,1,0},
+            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
+            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
+            {0,1,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,1,0},
+            {0,1,0,1,0,1,0,0,0,0,0,0,0,0,1,0,1,0,1,0},
+            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
+            {0,1,0,0,0,0,0,0,1,0,0,1,0,0,0,0,0,0,1,0},
+            {2,1,1,1,1,1,1,1,1,2,2,1,1,1,1,1,1,1,1,2},
+            {0,1,0,0,0,0,0,0,1,0,0,1,0,0,0,0,0,0,1,0},
+            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
+            {0,1,0,1,0,1,0,0,0,0,0,0,0,0,1,0,1,0,1,0},
+            {0,1,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,1,0},
+            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
+            {0,1,0,1,1,1,1,1,1,0,0,1,1,1,1,1,1,0,1,0},
+            {0,1,0,0,0,0,1,0,0,0,0,0,0,1,0,0,0,0,1,0},
+            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
+            {0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1,0},
+            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}
+        },
+        // Nivel 3 - Diseño complejo
+        {
+            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
+            {0,1,1,1,1,1,1,0,1,1,1,1,0,1,1,1,1,1,1,0},
+            {0,1,0,0,0,0,1,0,1,0,0,1,0,1,0,0,0,0,1,0},
+            {0,1,0,1,1,0,1,1,1,0,0,1,1,1,0,1,1,0,1,0},
+            {0,1,0,1,1,0,1,0,0,0,0,0,0,1,0,1,1,0,1,0},
+            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
+            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
+            {0,1,0,1,1,1,1,0,1,0,0,1,0,1,1,1,1,0,1,0},
+            {0,1,0,0,0,0,1,0,1,0,0,1,0,1,0,0,0,0,1,0},
+            {2,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,2},
+            {0,1,0,0,0,0,1,0,0,0,0,0,0,1,0,0,0,0,1,0},
+            {0,1,0,1,1,1,1,0,1,0,0,1,0,1,1,1,1,0,1,0},
+            {0,1,0,1,0,0,0,0,1,0,0,1,0,0,0,0,1,0,1,0},
+            {0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0},
+            {0,1,0,1,1,0,1,0,0,0,0,0,0,1,0,1,1,0,1,0},
+            {0,1,0,1,1,0,1,1,1,0,0,1,1,1,0,1,1,0,1,0},
+            {0,1,0,0,0,0,1,0,1,0,0,1,0,1,0,0,0,0,1,0},
+            {0,1,1,1,1,1,1,0,1,1,1,1,0,1,1,1,1,1,1,0},
+            {0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1,0},
+            {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}
+        }
+    };
+    // Salidas (columna, fila) de Pac-Man por nivel y de los tres fantasmas
+    private static final int[][] PACMAN_STARTS = {{9, 15}, {9, 13}, {9, 13}};
+    private static final int[][] GHOST_STARTS = {{9, 9}, {3, 3}, {15, 3}};
+    // Declared after the data it compiles
+    public static final BuiltInLevels INSTANCE = new BuiltInLevels();
+
+    private final Level[] levels;
+
+    private BuiltInLevels() {
+        levels = new Level[LEVEL_DATA.length];
+        for (int i = 0; i < LEVEL_DATA.length; i++) {
+            levels[i] = Level.fromCells("Nivel " + (i + 1), LEVEL_DATA[i],
+                PACMAN_STARTS[i][0], PACMAN_STARTS[i][1], GHOST_STARTS);
+        }
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    @Override
+    public Level getLevel(int index) {
+        return levels[index];
+    }
+
+    // Built-in levels have no file; replays store an empty name for them
+    @Override
+    public String getName() {
+        return "";
+    }
+}
@@ -0,0 +1,7 @@
+// Persigue directamente la celda de Pac-Man
+public class ChaseStrategy extends TargetingStrategy {
+    @Override
+    protected int target(Ghost ghost, GameEngine engine) {
+        return engine.getPacmanNode();
+    }
+}
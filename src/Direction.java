@@ -1,13 +1,34 @@
 public enum Direction {
-    LEFT(180), RIGHT(0), UP(90), DOWN(270);
+    LEFT(180, -1, 0), RIGHT(0, 1, 0), UP(90, 0, -1), DOWN(270, 0, 1);
 
     private final int angle;
+    private final int dx;
+    private final int dy;
 
-    Direction(int angle) {
+    Direction(int angle, int dx, int dy) {
         this.angle = angle;
+        this.dx = dx;
+        this.dy = dy;
     }
 
     public int getAngle() {
         return angle;
     }
-}
\ No newline at end of file
+
+    public int getDx() {
+        return dx;
+    }
+
+    public int getDy() {
+        return dy;
+    }
+
+    public Direction opposite() {
+        switch (this) {
+            case LEFT: return RIGHT;
+            case RIGHT: return LEFT;
+            case UP: return DOWN;
+            default: return UP;
+        }
+    }
+}
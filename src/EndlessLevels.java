@@ -0,0 +1,69 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Niveles sin fin para partidas largas: el nivel i se genera con MazeGenerator
+// a partir de la semilla del modo y de i, así que siempre es el mismo y se
+// puede volver a generar en una repetición. Los últimos niveles usados se
+// guardan en una caché pequeña.
+public final class EndlessLevels implements LevelSource {
+    static final String PREFIX = "endless";
+    public static final int DEFAULT_SIZE = 21;
+    private static final int CACHE_SIZE = 8;
+
+    private final long seed;
+    private final MazeGenerator generator;
+    private final String name;
+    private final Map<Integer, Level> cache = new LinkedHashMap<Integer, Level>(CACHE_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Level> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public EndlessLevels(long seed, int width, int height) {
+        this.seed = seed;
+        this.generator = new MazeGenerator(width, height);
+        this.name = PREFIX + ":" + seed + ":" + width + "x" + height;
+    }
+
+    // Parse the name written by getName(): "endless[:seed[:WxH]]"; without a
+    // seed a random one is used
+    static EndlessLevels fromName(String name) {
+        String[] parts = name.split(":");
+        long seed = parts.length > 1 ? Long.parseLong(parts[1]) : System.nanoTime();
+        int width = DEFAULT_SIZE;
+        int height = DEFAULT_SIZE;
+        if (parts.length > 2) {
+            String[] size = parts[2].split("x");
+            width = Integer.parseInt(size[0]);
+            height = Integer.parseInt(size[1]);
+        }
+        return new EndlessLevels(seed, width, height);
+    }
+
+    static long levelSeed(long seed, long index) {
+        return new GameRandom(seed + index * 0x9e3779b97f4a7c15L).nextLong();
+    }
+
+    @Override
+    public int getLevelCount() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public Level getLevel(int index) {
+        synchronized (cache) {
+            Level level = cache.get(index);
+            if (level == null) {
+                level = generator.generate(levelSeed(seed, index), "Laberinto " + (index + 1));
+                cache.put(index, level);
+            }
+            return level;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Puente para entrenadores en otro proceso de la misma máquina. Los datos de
+// VectorEnv viven en un fichero proyectado en memoria (por ejemplo en /dev/shm)
+// que el entrenador también proyecta, y por un socket local solo viaja un
+// byte de orden y uno de respuesta por paso: nada se serializa.
+//
+//   cabecera (64 bytes, little-endian):
+//     magic "PENV" (int), versión (int), entornos (int), columnas (int),
+//     filas (int), planos (int), bytes por observación (int), posición en el
+//     fichero de acciones, estados, recompensas y observaciones (4 int),
+//     relleno (int), semilla para 'r' (long), partidas terminadas en el último
+//     paso (int)
+//   después: el buffer de VectorEnv, también little-endian
+//
+// Órdenes: 's' avanza un paso, 'r' reinicia con la semilla de la cabecera; el
+// servidor responde con el mismo byte cuando ha terminado, o con 'e' si alguna
+// acción no es -1 ni una dirección (ningún entorno avanza). Atiende a un
+// entrenador cada vez, en 127.0.0.1.
+//
+// Uso: java -cp bin EnvServer <fichero> [entornos] [puerto] [niveles]
+public final class EnvServer implements Closeable {
+    static final int MAGIC = 0x50454e56;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SEED_OFFSET = 48;
+    static final int ENDED_OFFSET = 56;
+    public static final int DEFAULT_PORT = 7700;
+    static final byte STEP = 's';
+    static final byte RESET = 'r';
+    static final byte BAD_ACTION = 'e';
+
+    private final MappedByteBuffer memory;
+    private final VectorEnv env;
+    private final ServerSocketChannel server;
+    private final ByteBuffer command = ByteBuffer.allocateDirect(1);
+
+    // Port 0 picks a free port, see getPort()
+    public EnvServer(Path file, int envs, LevelSource levels, int port) throws IOException {
+        ObservationLayout layout = ObservationLayout.of(levels);
+        long size = HEADER_SIZE + VectorEnv.bufferBytes(envs, layout);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(envs + " environments do not fit in one mapping");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The mapping stays valid after the channel is closed
+            memory = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        memory.order(ByteOrder.LITTLE_ENDIAN);
+        memory.putInt(0, MAGIC);
+        memory.putInt(4, VERSION);
+        memory.putInt(8, envs);
+        memory.putInt(12, layout.getCols());
+        memory.putInt(16, layout.getRows());
+        memory.putInt(20, ObservationLayout.PLANES);
+        memory.putInt(24, layout.getBytes());
+        memory.putInt(28, HEADER_SIZE);
+        memory.putInt(32, HEADER_SIZE + VectorEnv.statusOffset(envs));
+        memory.putInt(36, HEADER_SIZE + VectorEnv.rewardsOffset(envs));
+        memory.putInt(40, HEADER_SIZE + VectorEnv.observationsOffset(envs));
+        memory.putLong(SEED_OFFSET, 0);
+        memory.putInt(ENDED_OFFSET, 0);
+        ByteBuffer data = memory.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        data.position(HEADER_SIZE);
+        env = new VectorEnv(envs, levels, layout, data);
+
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public VectorEnv getEnv() {
+        return env;
+    }
+
+    // Serve trainers one after another until the server is closed
+    public void serve() throws IOException {
+        while (server.isOpen()) {
+            try (SocketChannel trainer = server.accept()) {
+                trainer.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                serve(trainer);
+            } catch (IOException e) {
+                if (server.isOpen()) {
+                    System.err.println("Trainer disconnected: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel trainer) throws IOException {
+        while (true) {
+            command.clear();
+            if (trainer.read(command) < 0) {
+                return;
+            }
+            byte order = command.get(0);
+            if (order == STEP) {
+                try {
+                    memory.putInt(ENDED_OFFSET, env.step());
+                } catch (IllegalArgumentException e) {
+                    // Nothing was stepped; the trainer can fix its actions and retry
+                    memory.putInt(ENDED_OFFSET, 0);
+                    command.put(0, BAD_ACTION);
+                }
+            } else if (order == RESET) {
+                env.reset(memory.getLong(SEED_OFFSET));
+                memory.putInt(ENDED_OFFSET, 0);
+            } else {
+                throw new IOException("Unknown command " + order);
+            }
+            command.flip();
+            while (command.hasRemaining()) {
+                trainer.write(command);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java -cp bin EnvServer <file> [envs] [port] [levels]");
+            System.exit(2);
+        }
+        int envs = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        LevelSource levels = args.length > 3 ? LevelSource.open(args[3]) : BuiltInLevels.INSTANCE;
+        try (EnvServer server = new EnvServer(Paths.get(args[0]), envs, levels, port)) {
+            System.out.println(envs + " environments in " + args[0] + ", listening on 127.0.0.1:" + server.getPort());
+            server.serve();
+        }
+    }
+}
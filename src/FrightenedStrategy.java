@@ -0,0 +1,37 @@
+// Fantasma asustado (Pac-Man con power-up): huye de Pac-Man, con algo de azar
+public class FrightenedStrategy implements GhostStrategy {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int WANDER_CHANCE = 4; // 1 in 4 junctions pick a random exit
+
+    @Override
+    public Direction chooseDirection(Ghost ghost, GameEngine engine, int node) {
+        return flee(engine.getMazeGraph(), node, ghost.getDirection(), engine.getPacmanNode(), ghost.getRandom());
+    }
+
+    static Direction flee(MazeGraph graph, int node, Direction heading, int pacmanNode, GameRandom random) {
+        Direction reverse = heading.opposite();
+        boolean wander = random.nextInt(WANDER_CHANCE) == 0;
+        Direction best = null;
+        int bestDistance = -1;
+        int start = random.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            Direction d = DIRECTIONS[(start + i) & 3];
+            int next = graph.neighbor(node, d);
+            if (next < 0 || d == reverse) {
+                continue;
+            }
+            if (wander || pacmanNode < 0) {
+                return d;
+            }
+            int distance = graph.distance(next, pacmanNode);
+            if (distance > bestDistance) {
+                best = d;
+                bestDistance = distance;
+            }
+        }
+        if (best == null && graph.neighbor(node, reverse) >= 0) {
+            best = reverse;
+        }
+        return best;
+    }
+}
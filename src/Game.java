@@ -1,17 +1,22 @@
 import javax.swing.JFrame;
 
 public class Game extends JFrame {
+    private final Board board;
+
     public Game() {
-        add(new Board());
+        board = new Board();
+        add(board);
         setTitle("Pac-Man");
         setDefaultCloseOperation(EXIT_ON_CLOSE);
-        setSize(400, 420);
-        setLocationRelativeTo(null);
         setResizable(false);
+        pack();
+        setLocationRelativeTo(null);
     }
 
     public static void main(String[] args) {
         Game game = new Game();
         game.setVisible(true);
+        game.board.requestFocus();
+        game.board.start();
     }
 }
\ No newline at end of file
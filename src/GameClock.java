@@ -0,0 +1,22 @@
+// Reloj de simulación: mide el tiempo en ticks del motor en lugar de leer la
+// hora del sistema, así la partida se comporta igual a cualquier velocidad.
+public class GameClock {
+    private long ticks = 0;
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public void advance() {
+        ticks++;
+    }
+
+    void setTicks(long ticks) {
+        this.ticks = ticks;
+    }
+
+    // Convert a wall-clock duration to ticks at the nominal tick rate
+    public static long millisToTicks(long millis) {
+        return millis / GameEngine.TICK_MILLIS;
+    }
+}
@@ -0,0 +1,649 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+// Motor del juego sin dependencias de Swing: contiene el estado y las reglas,
+// y avanza una iteración cada vez que se llama a step(). Board solo lo dibuja.
+public class GameEngine {
+    static final int TICK_MILLIS = 40;
+    static final int BLOCK_SIZE = 20;
+    static final int SPRITE_SIZE = 20;
+    static final int SHY_GHOST_DISTANCE = 8; // cells
+    static final int DOT_POINTS = 10;
+    // Pixels per tick; every speed must divide BLOCK_SIZE
+    static final int NORMAL_SPEED = 4;
+    static final int FRIGHTENED_GHOST_SPEED = 2;
+    static final int FAST_PACMAN_SPEED = 5;
+    // Pacman moves at FAST_PACMAN_SPEED once this many levels are completed
+    static final int FAST_PACMAN_LEVELS = 3;
+    // The engine's own ghosts take the level's ghost starts; ghosts added with
+    // addGhost() keep the position they were created at
+    static final int LEVEL_GHOSTS = 3;
+    // Power-ups never spawn this close (in cells) to Pacman or a ghost
+    static final int SPAWN_CLEARANCE = 2;
+    
+
+    private Pacman pacman;
+    private Ghost[] ghosts;
+    private PowerUp[] powerUps;
+    // Actor positions indexed by cell so collision checks only look at neighbours
+    private final SpatialHash ghostIndex = new SpatialHash(BLOCK_SIZE, SPRITE_SIZE);
+    private final SpatialHash powerUpIndex = new SpatialHash(BLOCK_SIZE, SPRITE_SIZE);
+    private int[] candidates = new int[8];
+    private GameListener[] listeners = new GameListener[0];
+    private int[] hits = new int[8];
+    // spawnMarks[slot] == spawnStamp marks an open cell where power-ups can't spawn
+    private int[] spawnMarks = new int[0];
+    private int spawnStamp = 0;
+    private int currentLevel = 0;
+    private final LevelGrid grid = new LevelGrid();
+    private MazeGraph mazeGraph;
+    private MoveTable moveTable;
+    private final GhostModeScheduler ghostModes = new GhostModeScheduler();
+    private boolean gameOver = false;
+    private boolean levelCompleted = false;
+    private int levelsCompleted = 0;
+    private final GameClock clock;
+    private final long seed;
+    private final GameRandom random;
+    private final LevelSource levels;
+    private final GameSnapshot.Reader snapshotReader = new GameSnapshot.Reader();
+
+    public GameEngine() {
+        this(System.nanoTime());
+    }
+
+    public GameEngine(long seed) {
+        this(seed, new GameClock());
+    }
+
+    public GameEngine(long seed, GameClock clock) {
+        this(seed, clock, BuiltInLevels.INSTANCE);
+    }
+
+    public GameEngine(long seed, LevelSource levels) {
+        this(seed, new GameClock(), levels);
+    }
+
+    public GameEngine(long seed, GameClock clock, LevelSource levels) {
+        this.seed = seed;
+        this.clock = clock;
+        this.random = new GameRandom(seed);
+        this.levels = levels;
+        loadLevel(currentLevel);
+        Level level = grid.getLevel();
+        pacman = new Pacman(level.getPacmanCol() * BLOCK_SIZE, level.getPacmanRow() * BLOCK_SIZE, this);
+        ghosts = new Ghost[] {
+            new Ghost(ghostStartX(level, 0), ghostStartY(level, 0), Color.RED, this, random.split(),
+                new ChaseStrategy(), new PatrolStrategy(PatrolStrategy.Corner.TOP_RIGHT, Integer.MAX_VALUE)),
+            new Ghost(ghostStartX(level, 1), ghostStartY(level, 1), Color.PINK, this, random.split(),
+                new AmbushStrategy(), new PatrolStrategy(PatrolStrategy.Corner.TOP_LEFT, Integer.MAX_VALUE)),
+            new Ghost(ghostStartX(level, 2), ghostStartY(level, 2), Color.CYAN, this, random.split(),
+                new PatrolStrategy(PatrolStrategy.Corner.BOTTOM_RIGHT, SHY_GHOST_DISTANCE),
+                new PatrolStrategy(PatrolStrategy.Corner.BOTTOM_RIGHT, Integer.MAX_VALUE))
+        };
+        powerUps = new PowerUp[0];
+        addPowerUp(PowerUpType.POWER);
+        addPowerUp(PowerUpType.FRUIT);
+        indexActors();
+    }
+
+    public void addListener(GameListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    // Add an extra ghost, e.g. for custom levels with many ghosts
+    public Ghost addGhost(int x, int y, Color color, GhostStrategy chaseStrategy, GhostStrategy scatterStrategy) {
+        return appendGhost(new Ghost(x, y, color, this, random.split(), chaseStrategy, scatterStrategy));
+    }
+
+    private Ghost appendGhost(Ghost ghost) {
+        ghosts = Arrays.copyOf(ghosts, ghosts.length + 1);
+        ghosts[ghosts.length - 1] = ghost;
+        ghostIndex.update(ghosts.length - 1, ghost.getX(), ghost.getY());
+        return ghost;
+    }
+
+    public PowerUp addPowerUp() {
+        return addPowerUp(PowerUpType.POWER);
+    }
+
+    public PowerUp addPowerUp(PowerUpType type) {
+        PowerUp powerUp = new PowerUp(this, random.split(), type);
+        powerUps = Arrays.copyOf(powerUps, powerUps.length + 1);
+        powerUps[powerUps.length - 1] = powerUp;
+        indexPowerUp(powerUps.length - 1);
+        return powerUp;
+    }
+
+    // Advance the game by one tick. A non-null input replaces Pacman's desired direction.
+    public GameStatus step(Direction input) {
+        if (gameOver) {
+            return GameStatus.GAME_OVER;
+        }
+        if (input != null) {
+            pacman.setDesiredDirection(input);
+        }
+        levelCompleted = false;
+        clock.advance();
+        updateGhostMode();
+        pacman.move();
+        for (int i = 0; i < ghosts.length; i++) {
+            ghosts[i].move();
+            ghostIndex.update(i, ghosts[i].getX(), ghosts[i].getY());
+        }
+        respawnPowerUps();
+        checkPowerUpCollision();
+        checkCollisions();
+        if (gameOver) {
+            return GameStatus.GAME_OVER;
+        }
+        return levelCompleted ? GameStatus.LEVEL_COMPLETE : GameStatus.RUNNING;
+    }
+    
+    private void updateGhostMode() {
+        GhostMode previous = ghostModes.getMode();
+        GhostMode mode = ghostModes.update(pacman.isPowered());
+        if (mode != previous && previous != GhostMode.FRIGHTENED) {
+            for (Ghost ghost : ghosts) {
+                ghost.reverse();
+            }
+        }
+    }
+    
+    private void loadLevel(int index) {
+        if (index < 0 || index >= levels.getLevelCount()) {
+            index = 0;
+        }
+        Level level = levels.getLevel(index);
+        grid.load(level);
+        mazeGraph = level.getMazeGraph();
+        moveTable = level.getMoveTable();
+        ghostModes.reset();
+        ghostIndex.reset(grid.getWidth(), grid.getHeight());
+        powerUpIndex.reset(grid.getWidth(), grid.getHeight());
+        if (pacman != null) {
+            pacman.setStart(level.getPacmanCol() * BLOCK_SIZE, level.getPacmanRow() * BLOCK_SIZE);
+            pacman.setSpeed(levelsCompleted >= FAST_PACMAN_LEVELS ? FAST_PACMAN_SPEED : NORMAL_SPEED);
+            for (int i = 0; i < Math.min(LEVEL_GHOSTS, ghosts.length); i++) {
+                ghosts[i].setStart(ghostStartX(level, i), ghostStartY(level, i));
+            }
+        }
+        fireLevelLoaded(index);
+    }
+
+    private static int ghostStartX(Level level, int ghost) {
+        return level.getGhostCol(ghost % level.getGhostStartCount()) * BLOCK_SIZE;
+    }
+
+    private static int ghostStartY(Level level, int ghost) {
+        return level.getGhostRow(ghost % level.getGhostStartCount()) * BLOCK_SIZE;
+    }
+
+    private void fireLevelLoaded(int level) {
+        for (GameListener listener : listeners) {
+            listener.levelLoaded(level);
+        }
+    }
+
+    private void indexActors() {
+        for (int i = 0; i < ghosts.length; i++) {
+            ghostIndex.update(i, ghosts[i].getX(), ghosts[i].getY());
+        }
+        for (int i = 0; i < powerUps.length; i++) {
+            indexPowerUp(i);
+        }
+    }
+
+    private void indexPowerUp(int i) {
+        if (powerUps[i].isActive()) {
+            powerUpIndex.update(i, powerUps[i].getX(), powerUps[i].getY());
+        } else {
+            powerUpIndex.remove(i);
+        }
+    }
+
+    // Clear the board first so new positions don't avoid the old ones
+    private void resetPowerUps() {
+        for (PowerUp powerUp : powerUps) {
+            powerUp.hide();
+        }
+        for (PowerUp powerUp : powerUps) {
+            powerUp.reset();
+        }
+    }
+
+    private void respawnPowerUps() {
+        long ticks = clock.getTicks();
+        for (int i = 0; i < powerUps.length; i++) {
+            if (powerUps[i].update(ticks)) {
+                indexPowerUp(i);
+            }
+        }
+    }
+
+    // Random open cell of the current maze for PowerUp.spawn(), at least
+    // SPAWN_CLEARANCE cells from Pacman and every ghost and not under another
+    // active power-up. It draws from the level's OpenCells list and redraws
+    // only when it hits one of the few excluded cells, so the cost does not
+    // depend on the size of the maze or how many walls it has.
+    int randomSpawnCell(GameRandom random) {
+        OpenCells open = grid.getLevel().getOpenCells();
+        if (spawnMarks.length < open.size()) {
+            spawnMarks = new int[open.size()];
+        }
+        if (++spawnStamp == 0) {
+            Arrays.fill(spawnMarks, 0);
+            spawnStamp = 1;
+        }
+        int excluded = excludeAround(open, pacman.getX(), pacman.getY(), SPAWN_CLEARANCE, 0);
+        for (Ghost ghost : ghosts) {
+            excluded = excludeAround(open, ghost.getX(), ghost.getY(), SPAWN_CLEARANCE, excluded);
+        }
+        for (PowerUp powerUp : powerUps) {
+            if (powerUp.isActive()) {
+                excluded = excludeAround(open, powerUp.getX(), powerUp.getY(), 0, excluded);
+            }
+        }
+        if (excluded == open.size()) {
+            return open.cell(random.nextInt(open.size()));
+        }
+        if (2 * excluded > open.size()) {
+            // Crowded tiny maze: take the n-th allowed cell instead of redrawing
+            int n = random.nextInt(open.size() - excluded);
+            for (int slot = 0; ; slot++) {
+                if (spawnMarks[slot] != spawnStamp && n-- == 0) {
+                    return open.cell(slot);
+                }
+            }
+        }
+        while (true) {
+            int slot = random.nextInt(open.size());
+            if (spawnMarks[slot] != spawnStamp) {
+                return open.cell(slot);
+            }
+        }
+    }
+
+    // Mark the open cells within 'radius' of the actor at (x, y); returns the
+    // number of marked cells
+    private int excludeAround(OpenCells open, int x, int y, int radius, int excluded) {
+        int half = SPRITE_SIZE / 2;
+        int col = wrapX(x + half) / BLOCK_SIZE;
+        int row = wrapY(y + half) / BLOCK_SIZE;
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        for (int dy = -radius; dy <= radius; dy++) {
+            int rowStart = Math.floorMod(row + dy, height) * width;
+            for (int dx = -radius; dx <= radius; dx++) {
+                int c = col + dx;
+                int slot = open.slot(rowStart + (c < 0 ? c + width : c >= width ? c - width : c));
+                if (slot >= 0 && spawnMarks[slot] != spawnStamp) {
+                    spawnMarks[slot] = spawnStamp;
+                    excluded++;
+                }
+            }
+        }
+        return excluded;
+    }
+
+    // Position between the previous and current tick for smooth rendering;
+    // jumps larger than a cell (tunnel wrap, resets) are not interpolated
+    static int interpolate(int previous, int current, double alpha) {
+        int delta = current - previous;
+        if (delta > BLOCK_SIZE || delta < -BLOCK_SIZE) {
+            return current;
+        }
+        return previous + (int) Math.round(delta * alpha);
+    }
+    
+    public int getSpriteSize() {
+        return SPRITE_SIZE;
+    }
+    
+    public boolean isWall(int x, int y) {
+        // Apply wrapping before checking wall collision
+        x = wrapX(x);
+        y = wrapY(y);
+        
+        return grid.isWall(x / BLOCK_SIZE, y / BLOCK_SIZE);
+    }
+    
+    public int wrapX(int x) {
+        int boardPixelWidth = grid.getWidth() * BLOCK_SIZE;
+        if (x < 0) {
+            return x + boardPixelWidth;
+        } else if (x >= boardPixelWidth) {
+            return x - boardPixelWidth;
+        }
+        return x;
+    }
+    
+    public int wrapY(int y) {
+        int boardPixelHeight = grid.getHeight() * BLOCK_SIZE;
+        if (y < 0) {
+            return y + boardPixelHeight;
+        } else if (y >= boardPixelHeight) {
+            return y - boardPixelHeight;
+        }
+        return y;
+    }
+    
+    public void eatPoint(int x, int y) {
+        int col = x / BLOCK_SIZE;
+        int row = y / BLOCK_SIZE;
+        if (row >= 0 && row < grid.getHeight() && col >= 0 && col < grid.getWidth()) {
+            if (grid.eatDot(col, row)) {
+                pacman.addScore(DOT_POINTS);
+                for (GameListener listener : listeners) {
+                    listener.dotEaten(col, row);
+                }
+                checkLevelComplete();
+            }
+        }
+    }
+    
+    private void checkLevelComplete() {
+        if (grid.getRemainingDots() > 0) {
+            return;
+        }
+        // Todos los puntos comidos, avanzar al siguiente nivel
+        levelsCompleted++;
+        currentLevel++;
+        if (currentLevel >= levels.getLevelCount()) {
+            currentLevel = 0; // Reiniciar al primer nivel
+        }
+        loadLevel(currentLevel);
+        pacman.reset();
+        // The next maze may have another size, so ghosts go back to their starts too
+        for (Ghost ghost : ghosts) {
+            ghost.reset();
+        }
+        resetPowerUps();
+        indexActors();
+        levelCompleted = true;
+    }
+    
+    private void checkCollisions() {
+        int pacmanX = pacman.getX();
+        int pacmanY = pacman.getY();
+        int pacmanSize = pacman.getSpriteSize();
+        
+        // Don't check collision if pacman is powered up
+        if (pacman.isPowered()) {
+            return;
+        }
+        
+        if (ghostsOverlapping(pacmanX, pacmanY, pacmanSize, hits) > 0) {
+            gameOver = true;
+            for (GameListener listener : listeners) {
+                listener.pacmanCaught();
+            }
+        }
+    }
+
+    // Write into 'out' the indexes of ghosts whose sprite overlaps the square
+    // at (x, y) and return how many there are
+    public int ghostsOverlapping(int x, int y, int size, int[] out) {
+        int found = ghostIndex.query(x, y, size, candidateBuffer());
+        int count = 0;
+        for (int i = 0; i < found && count < out.length; i++) {
+            int id = candidates[i];
+            Ghost ghost = ghosts[id];
+            int ghostX = ghost.getX();
+            int ghostY = ghost.getY();
+            int ghostSize = ghost.getSpriteSize();
+            
+            // Detectar colisión usando rectángulos
+            if (x < ghostX + ghostSize &&
+                x + size > ghostX &&
+                y < ghostY + ghostSize &&
+                y + size > ghostY) {
+                out[count++] = id;
+            }
+        }
+        return count;
+    }
+
+    // Ghosts touching the given ghost, not counting itself
+    public int ghostsOverlapping(Ghost ghost, int[] out) {
+        int count = ghostsOverlapping(ghost.getX(), ghost.getY(), ghost.getSpriteSize(), out);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (ghosts[out[i]] != ghost) {
+                out[kept++] = out[i];
+            }
+        }
+        return kept;
+    }
+
+    private int[] candidateBuffer() {
+        int needed = Math.max(ghosts.length, powerUps.length);
+        if (candidates.length < needed) {
+            candidates = new int[needed];
+            hits = new int[needed];
+        }
+        return candidates;
+    }
+    
+    private void checkPowerUpCollision() {
+        int found = powerUpIndex.query(pacman.getX(), pacman.getY(), pacman.getSpriteSize(), candidateBuffer());
+        for (int i = 0; i < found; i++) {
+            int id = candidates[i];
+            if (powerUps[id].checkCollision(pacman.getX(), pacman.getY(), pacman.getSpriteSize())) {
+                powerUpIndex.remove(id);
+                PowerUpType type = powerUps[id].getType();
+                pacman.addScore(type.getPoints());
+                if (type.powersUp()) {
+                    pacman.activatePowerUp();
+                }
+                for (GameListener listener : listeners) {
+                    listener.powerUpEaten(type);
+                }
+            }
+        }
+    }
+    
+    public void restart() {
+        levelsCompleted = 0;
+        startLevel(0);
+    }
+
+    // Start a fresh game on the given level (clamped to the level table)
+    public void startLevel(int level) {
+        gameOver = false;
+        currentLevel = level < 0 || level >= levels.getLevelCount() ? 0 : level;
+        loadLevel(currentLevel);
+        pacman.reset();
+        for (Ghost ghost : ghosts) {
+            ghost.reset();
+        }
+        resetPowerUps();
+        indexActors();
+    }
+
+    // Copy the whole game state; restore() on an engine with the same actors
+    // continues the game exactly from this point
+    public GameSnapshot snapshot() {
+        return snapshot(new GameSnapshot());
+    }
+
+    // Same as snapshot() but overwrites an existing snapshot without allocating
+    public GameSnapshot snapshot(GameSnapshot snapshot) {
+        snapshot.clear();
+        snapshot.put(currentLevel);
+        snapshot.put(levelsCompleted);
+        snapshot.putBoolean(gameOver);
+        snapshot.putBoolean(levelCompleted);
+        snapshot.put(clock.getTicks());
+        snapshot.put(ghosts.length);
+        snapshot.put(powerUps.length);
+        random.writeTo(snapshot);
+        grid.writeTo(snapshot);
+        ghostModes.writeTo(snapshot);
+        pacman.writeTo(snapshot);
+        for (Ghost ghost : ghosts) {
+            ghost.writeTo(snapshot);
+        }
+        for (PowerUp powerUp : powerUps) {
+            powerUp.writeTo(snapshot);
+        }
+        return snapshot;
+    }
+
+    public void restore(GameSnapshot snapshot) {
+        GameSnapshot.Reader in = snapshotReader.start(snapshot);
+        int level = in.getInt();
+        int savedLevelsCompleted = in.getInt();
+        boolean savedGameOver = in.getBoolean();
+        boolean savedLevelCompleted = in.getBoolean();
+        long ticks = in.get();
+        if (in.getInt() != ghosts.length || in.getInt() != powerUps.length) {
+            throw new IllegalArgumentException("Snapshot was taken from a game with different actors");
+        }
+        if (level != currentLevel) {
+            currentLevel = level;
+            loadLevel(level);
+        } else {
+            // Same maze: only the dots change, but listeners still redraw it
+            fireLevelLoaded(level);
+        }
+        levelsCompleted = savedLevelsCompleted;
+        gameOver = savedGameOver;
+        levelCompleted = savedLevelCompleted;
+        clock.setTicks(ticks);
+        random.readFrom(in);
+        grid.readFrom(in);
+        ghostModes.readFrom(in);
+        pacman.readFrom(in);
+        for (Ghost ghost : ghosts) {
+            ghost.readFrom(in);
+        }
+        for (PowerUp powerUp : powerUps) {
+            powerUp.readFrom(in);
+        }
+        indexActors();
+    }
+
+    // Independent copy of this game with the same actors and state, without
+    // listeners. Forking allocates a new engine; search code should fork once
+    // per thread and then restore() snapshots into the copy.
+    public GameEngine fork() {
+        GameEngine copy = new GameEngine(seed, new GameClock(), levels);
+        for (int i = copy.ghosts.length; i < ghosts.length; i++) {
+            copy.appendGhost(ghosts[i].copyFor(copy));
+        }
+        for (int i = copy.powerUps.length; i < powerUps.length; i++) {
+            copy.addPowerUp(powerUps[i].getType());
+        }
+        copy.restore(snapshot());
+        return copy;
+    }
+
+    // Códigos de celda: 0=pared, 1=punto, 2=camino vacío
+    public int getCell(int row, int col) {
+        return grid.getCell(row, col);
+    }
+
+    // Independent random stream for controllers and other per-game consumers
+    public GameRandom splitRandom() {
+        return random.split();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    // Cheap digest of what changes from tick to tick (actors, power-ups,
+    // score, dots, level), so replays can be checked tick by tick without a
+    // snapshot
+    public long stateDigest() {
+        long hash = mixHash(clock.getTicks(), currentLevel);
+        hash = mixHash(hash, pacman.getX());
+        hash = mixHash(hash, pacman.getY());
+        hash = mixHash(hash, pacman.getScore());
+        hash = mixHash(hash, getRemainingDots());
+        for (Ghost ghost : ghosts) {
+            hash = mixHash(hash, ghost.getX());
+            hash = mixHash(hash, ghost.getY());
+        }
+        for (PowerUp powerUp : powerUps) {
+            hash = mixHash(hash, powerUp.isActive() ? powerUp.getX() : -1);
+            hash = mixHash(hash, powerUp.getY());
+        }
+        return hash;
+    }
+
+    // One step of a 64-bit hash
+    static long mixHash(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ hash >>> 32;
+    }
+
+    public int getRemainingDots() {
+        return grid.getRemainingDots();
+    }
+
+    public MazeGraph getMazeGraph() {
+        return mazeGraph;
+    }
+
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    public GhostMode getGhostMode() {
+        return ghostModes.getMode();
+    }
+
+    // Maze node under Pacman's center
+    public int getPacmanNode() {
+        int half = pacman.getSpriteSize() / 2;
+        return mazeGraph.node(wrapX(pacman.getX() + half) / BLOCK_SIZE, wrapY(pacman.getY() + half) / BLOCK_SIZE);
+    }
+
+    public Pacman getPacman() {
+        return pacman;
+    }
+
+    public Ghost[] getGhosts() {
+        return ghosts;
+    }
+
+    public PowerUp[] getPowerUps() {
+        return powerUps;
+    }
+
+    public LevelSource getLevelSource() {
+        return levels;
+    }
+
+    // Size of the current maze in cells
+    public int getBoardWidth() {
+        return grid.getWidth();
+    }
+
+    public int getBoardHeight() {
+        return grid.getHeight();
+    }
+
+    public int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    public int getLevelCount() {
+        return levels.getLevelCount();
+    }
+
+    public int getLevelsCompleted() {
+        return levelsCompleted;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -0,0 +1,16 @@
+// Eventos del motor para quien necesite reaccionar sin recorrer el tablero
+// (renderizado incremental, métricas, red...). Se llaman desde step().
+public interface GameListener {
+    default void dotEaten(int col, int row) {
+    }
+
+    default void levelLoaded(int level) {
+    }
+
+    default void powerUpEaten(PowerUpType type) {
+    }
+
+    // A ghost caught Pacman; the game is over
+    default void pacmanCaught() {
+    }
+}
@@ -0,0 +1,124 @@
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+// Bucle de juego con paso fijo: acumula el tiempo real transcurrido, ejecuta
+// tantos ticks de GameEngine.TICK_MILLIS como correspondan y dibuja un frame
+// por refresco de pantalla interpolando entre el último tick y el anterior.
+// Así un frame lento no retrasa la simulación ni la entrada de teclado.
+// Con GameMetrics además mide cada tick y cada frame en histogramas y emite
+// un TickEvent de JFR por tick.
+public class GameLoop implements Runnable {
+    private static final long TICK_NANOS = GameEngine.TICK_MILLIS * 1_000_000L;
+    // If rendering stalls, catch up at most this many ticks and drop the rest
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final Board board;
+    private final BufferStrategy strategy;
+    private final long frameNanos;
+    private final LoopMetrics metrics = new LoopMetrics();
+    private final GameMetrics gameMetrics;
+    private volatile boolean running;
+    private Thread thread;
+
+    public GameLoop(Board board, BufferStrategy strategy, int framesPerSecond) {
+        this(board, strategy, framesPerSecond, null);
+    }
+
+    // gameMetrics may be null to measure only LoopMetrics
+    public GameLoop(Board board, BufferStrategy strategy, int framesPerSecond, GameMetrics gameMetrics) {
+        this.board = board;
+        this.strategy = strategy;
+        this.frameNanos = 1_000_000_000L / framesPerSecond;
+        this.gameMetrics = gameMetrics;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public LoopMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long lag = 0;
+        while (running) {
+            long frameStart = System.nanoTime();
+            lag += frameStart - previous;
+            previous = frameStart;
+
+            int ticks = 0;
+            while (lag >= TICK_NANOS && ticks < MAX_CATCH_UP_TICKS) {
+                tick();
+                lag -= TICK_NANOS;
+                ticks++;
+            }
+            if (lag >= TICK_NANOS) {
+                metrics.recordDroppedTicks(lag / TICK_NANOS);
+                if (gameMetrics != null) {
+                    gameMetrics.recordDroppedTicks(lag / TICK_NANOS);
+                }
+                lag %= TICK_NANOS;
+            }
+
+            long renderStart = System.nanoTime();
+            render((double) lag / TICK_NANOS);
+            long frameEnd = System.nanoTime();
+            metrics.recordFrame(frameEnd - frameStart, frameEnd);
+            if (gameMetrics != null) {
+                gameMetrics.recordRender(frameEnd - renderStart);
+                gameMetrics.frameShown(frameEnd);
+            }
+
+            long sleep = frameNanos - (frameEnd - frameStart);
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        if (gameMetrics == null) {
+            board.update();
+            metrics.recordTick(System.nanoTime() - start);
+        } else {
+            // A small short-lived object per tick; begin/end/shouldCommit are
+            // nearly free when JFR is not recording
+            TickEvent event = new TickEvent();
+            event.begin();
+            board.update();
+            event.end();
+            long nanos = System.nanoTime() - start;
+            metrics.recordTick(nanos);
+            gameMetrics.recordTick(nanos, event, board.getEngine());
+        }
+    }
+
+    private void render(double alpha) {
+        // Redraw if the back buffer was lost or restored while drawing
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    board.render(g, alpha);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+}
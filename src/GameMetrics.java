@@ -0,0 +1,245 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Métricas del juego en producción, activadas con -Dpacman.metrics[=segundos]:
+// histogramas de la duración de los ticks, del pintado de cada frame y de la
+// latencia entre pulsar una tecla y mostrar el frame con su efecto, y contadores
+// de ticks, frames, ticks descartados, puntos y power-ups comidos y choques con
+// fantasmas. Se publican por JMX, se escriben en la salida cada N segundos
+// (10 por defecto, 0 = nunca) y cada tick genera un TickEvent de JFR.
+// Sin la propiedad no se crea y el bucle de juego no mide nada más que LoopMetrics.
+public final class GameMetrics implements GameMetricsMBean, GameListener {
+    static final String PROPERTY = "pacman.metrics";
+    static final String OBJECT_NAME = "pacman:type=GameMetrics";
+    private static final long DEFAULT_LOG_SECONDS = 10;
+
+    private final LatencyHistogram tickNanos = new LatencyHistogram();
+    private final LatencyHistogram renderNanos = new LatencyHistogram();
+    private final LatencyHistogram inputNanos = new LatencyHistogram();
+    private final AtomicLong droppedTicks = new AtomicLong();
+    private final AtomicLong dotsEaten = new AtomicLong();
+    private final AtomicLong powerUpsEaten = new AtomicLong();
+    private final AtomicLong collisions = new AtomicLong();
+    // Oldest input applied since the last frame was shown (game loop thread only)
+    private boolean inputPending;
+    private long inputPressedNanos;
+    // Set by reset() from JMX; the game loop thread, the histograms' only
+    // writer, clears everything before it records again
+    private volatile boolean resetRequested;
+
+    // Metrics configured by the system property, or null when they are off
+    static GameMetrics fromSystemProperties() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null) {
+            return null;
+        }
+        long seconds = DEFAULT_LOG_SECONDS;
+        if (!value.isEmpty() && !value.equals("true")) {
+            try {
+                seconds = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                System.err.println("Bad " + PROPERTY + " value '" + value + "', logging every " + seconds + " s");
+            }
+        }
+        GameMetrics metrics = new GameMetrics();
+        metrics.register();
+        if (seconds > 0) {
+            metrics.startLogging(seconds);
+        }
+        return metrics;
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Metrics not published over JMX: " + e);
+        }
+    }
+
+    private void startLogging(long seconds) {
+        ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pacman-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> System.out.println(summary()), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    // Game loop thread: one tick took 'nanos'; the JFR event was begun and
+    // ended around it and is committed only if JFR is recording it
+    void recordTick(long nanos, TickEvent event, GameEngine engine) {
+        resetIfRequested();
+        tickNanos.record(nanos);
+        if (event.shouldCommit()) {
+            event.tick = engine.getClock().getTicks();
+            event.level = engine.getCurrentLevel();
+            event.ghosts = engine.getGhosts().length;
+            event.remainingDots = engine.getRemainingDots();
+            event.gameOver = engine.isGameOver();
+            event.commit();
+        }
+    }
+
+    void recordRender(long nanos) {
+        resetIfRequested();
+        renderNanos.record(nanos);
+    }
+
+    void recordDroppedTicks(long count) {
+        droppedTicks.addAndGet(count);
+    }
+
+    // A key pressed at 'pressedNanos' (System.nanoTime) was applied this tick
+    void inputApplied(long pressedNanos) {
+        if (!inputPending) {
+            inputPending = true;
+            inputPressedNanos = pressedNanos;
+        }
+    }
+
+    // A frame drawn after the last applied input reached the screen
+    void frameShown(long nanos) {
+        resetIfRequested();
+        if (inputPending) {
+            inputNanos.record(nanos - inputPressedNanos);
+            inputPending = false;
+        }
+    }
+
+    @Override
+    public void dotEaten(int col, int row) {
+        dotsEaten.incrementAndGet();
+    }
+
+    @Override
+    public void powerUpEaten(PowerUpType type) {
+        powerUpsEaten.incrementAndGet();
+    }
+
+    @Override
+    public void pacmanCaught() {
+        collisions.incrementAndGet();
+    }
+
+    public String summary() {
+        return String.format("metrics: ticks=%d frames=%d dropped=%d dots=%d powerUps=%d collisions=%d"
+                + " | tick p50=%.2f p99=%.2f max=%.2f ms | render p50=%.2f p99=%.2f max=%.2f ms"
+                + " | input p50=%.1f p99=%.1f max=%.1f ms",
+            getTicks(), getFrames(), getDroppedTicks(), getDotsEaten(), getPowerUpsEaten(), getCollisions(),
+            getTickP50Millis(), getTickP99Millis(), getTickMaxMillis(),
+            getRenderP50Millis(), getRenderP99Millis(), getRenderMaxMillis(),
+            getInputLatencyP50Millis(), getInputLatencyP99Millis(), getInputLatencyMaxMillis());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    @Override
+    public long getTicks() {
+        return tickNanos.getCount();
+    }
+
+    @Override
+    public long getFrames() {
+        return renderNanos.getCount();
+    }
+
+    @Override
+    public long getDroppedTicks() {
+        return droppedTicks.get();
+    }
+
+    @Override
+    public long getDotsEaten() {
+        return dotsEaten.get();
+    }
+
+    @Override
+    public long getPowerUpsEaten() {
+        return powerUpsEaten.get();
+    }
+
+    @Override
+    public long getCollisions() {
+        return collisions.get();
+    }
+
+    @Override
+    public double getTickP50Millis() {
+        return millis(tickNanos.getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getTickP99Millis() {
+        return millis(tickNanos.getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getTickMaxMillis() {
+        return millis(tickNanos.getMax());
+    }
+
+    @Override
+    public double getRenderP50Millis() {
+        return millis(renderNanos.getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getRenderP99Millis() {
+        return millis(renderNanos.getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getRenderMaxMillis() {
+        return millis(renderNanos.getMax());
+    }
+
+    @Override
+    public double getInputLatencyP50Millis() {
+        return millis(inputNanos.getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getInputLatencyP99Millis() {
+        return millis(inputNanos.getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getInputLatencyMaxMillis() {
+        return millis(inputNanos.getMax());
+    }
+
+    // Takes effect on the game loop thread before its next sample
+    @Override
+    public void reset() {
+        resetRequested = true;
+    }
+
+    private void resetIfRequested() {
+        if (!resetRequested) {
+            return;
+        }
+        resetRequested = false;
+        tickNanos.reset();
+        renderNanos.reset();
+        inputNanos.reset();
+        droppedTicks.set(0);
+        dotsEaten.set(0);
+        powerUpsEaten.set(0);
+        collisions.set(0);
+        inputPending = false;
+    }
+}
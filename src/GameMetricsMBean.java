@@ -0,0 +1,35 @@
+// Interfaz JMX de GameMetrics (nombre "pacman:type=GameMetrics"): contadores
+// y percentiles de latencia en milisegundos, visibles desde jconsole o VisualVM.
+public interface GameMetricsMBean {
+    long getTicks();
+
+    long getFrames();
+
+    long getDroppedTicks();
+
+    long getDotsEaten();
+
+    long getPowerUpsEaten();
+
+    long getCollisions();
+
+    double getTickP50Millis();
+
+    double getTickP99Millis();
+
+    double getTickMaxMillis();
+
+    double getRenderP50Millis();
+
+    double getRenderP99Millis();
+
+    double getRenderMaxMillis();
+
+    double getInputLatencyP50Millis();
+
+    double getInputLatencyP99Millis();
+
+    double getInputLatencyMaxMillis();
+
+    void reset();
+}
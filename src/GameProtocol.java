@@ -0,0 +1,39 @@
+// Protocolo de GameServer sobre TCP, en orden de red (big-endian).
+//
+// Cliente -> servidor, mensajes de 4 bytes:
+//   JOIN  'J', rol (0 espectador, 1 jugador), partida (short)
+//   INPUT 'I', Direction.ordinal(), 0, 0    solo cuenta si el cliente es el jugador
+//
+// Servidor -> cliente: tipo (byte), longitud del resto (int) y:
+//   WELCOME  'W': partida (int), rol concedido (byte); solo hay un jugador por partida
+//   KEYFRAME 'K': estado completo, al entrar, al cargar un nivel y al alcanzar a
+//                 un cliente que se había quedado atrás (ver RemoteGame.applyKeyframe)
+//   DELTA    'D': lo que cambió en un tick respecto al anterior
+//                 (ver RemoteGame.applyDelta): actores movidos (desplazamiento en
+//                 dos bytes, o posición absoluta tras un túnel), power-ups que
+//                 aparecen o desaparecen, puntos comidos y puntuación
+//
+// Un tick normal ocupa unos 30 bytes, sea cual sea el tamaño del laberinto.
+public final class GameProtocol {
+    public static final int CLIENT_MESSAGE_SIZE = 4;
+    public static final byte JOIN = 'J';
+    public static final byte INPUT = 'I';
+    public static final byte SPECTATOR = 0;
+    public static final byte PLAYER = 1;
+
+    public static final int HEADER_SIZE = 5;
+    public static final byte WELCOME = 'W';
+    public static final byte KEYFRAME = 'K';
+    public static final byte DELTA = 'D';
+
+    // DELTA flags
+    static final int SCORE_CHANGED = 1;
+    static final int POWERED_CHANGED = 2;
+    static final int MODE_CHANGED = 4;
+    static final int DIRECTION_CHANGED = 8;
+    // Actor id bit: the position follows as two ints instead of two byte offsets
+    static final int ABSOLUTE = 0x80;
+
+    private GameProtocol() {
+    }
+}
@@ -0,0 +1,95 @@
+// Generador pseudoaleatorio con semilla y divisible (mismo algoritmo que
+// java.util.SplittableRandom). Cada partida crea uno a partir de su semilla y
+// reparte un split() a cada actor, así una semilla reproduce la partida
+// completa y las partidas en paralelo no comparten estado. El estado son dos
+// longs, lo que permite guardarlo y restaurarlo.
+public class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private long gamma;
+
+    public GameRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private GameRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    // Create an independent stream; the parent advances as a side effect
+    public GameRandom split() {
+        return new GameRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r &= m;
+        } else {
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+            }
+        }
+        return r;
+    }
+
+    // Raw state, for BatchedEngine, which keeps its streams in long arrays
+    void setState(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    long getSeedState() {
+        return seed;
+    }
+
+    long getGamma() {
+        return gamma;
+    }
+
+    void writeTo(GameSnapshot snapshot) {
+        snapshot.put(seed);
+        snapshot.put(gamma);
+    }
+
+    void readFrom(GameSnapshot.Reader in) {
+        seed = in.get();
+        gamma = in.get();
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
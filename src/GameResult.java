@@ -0,0 +1,36 @@
+// Resultado final de una partida simulada
+public class GameResult {
+    private final long seed;
+    private final int score;
+    private final long ticks;
+    private final int levelReached;
+    private final boolean won;
+
+    public GameResult(long seed, int score, long ticks, int levelReached, boolean won) {
+        this.seed = seed;
+        this.score = score;
+        this.ticks = ticks;
+        this.levelReached = levelReached;
+        this.won = won;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int getLevelReached() {
+        return levelReached;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+}
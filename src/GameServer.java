@@ -0,0 +1,407 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Servidor sin ventana que aloja varias partidas y las retransmite a
+// espectadores y jugadores remotos (protocolo en GameProtocol). Un solo hilo
+// con un Selector de NIO atiende todas las conexiones y avanza las partidas
+// cada GameEngine.TICK_MILLIS. Cada tick se codifica una vez por partida
+// (ServerGame) y se copia en el buffer de salida de cada cliente.
+//
+// Un cliente lento no frena a los demás: si su buffer se llena deja de
+// recibir deltas y, cuando lo vacía, recibe un keyframe con el estado actual.
+// El primer cliente que entra como jugador en una partida la controla y
+// recibe cada tick al momento; a los espectadores se les envían los deltas
+// de SPECTATOR_FLUSH_TICKS ticks juntos (160 ms de retraso), porque lo que
+// cuesta en el servidor es la llamada al sistema por envío, no los bytes.
+//
+// Uso: java -cp bin GameServer [puerto] [partidas] [niveles]
+public final class GameServer implements Closeable {
+    public static final int DEFAULT_PORT = 7701;
+    private static final long TICK_NANOS = GameEngine.TICK_MILLIS * 1_000_000L;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final int CLIENT_BUFFER_SIZE = 16 * 1024;
+    private static final int ACCEPT_BACKLOG = 4096;
+    static final int SPECTATOR_FLUSH_TICKS = 4;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ServerGame[] games;
+    private final List<List<Client>> viewers = new ArrayList<>();
+    private final Client[] players;
+    private final LatencyHistogram tickNanos = new LatencyHistogram();
+    private volatile boolean ticking = true;
+    private volatile boolean tickingStopped;
+    private volatile int clients;
+    private long accepted;
+    private volatile long ticks;
+    private volatile long droppedTicks;
+    private volatile long resyncs;
+    private volatile long bytesSent;
+
+    private static final class Client {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(16 * GameProtocol.CLIENT_MESSAGE_SIZE);
+        ByteBuffer out = ByteBuffer.allocateDirect(CLIENT_BUFFER_SIZE);
+        int game = -1;
+        boolean player;
+        // Spectators are flushed on the ticks where (tick + slot) % SPECTATOR_FLUSH_TICKS == 0
+        final int slot;
+        boolean writing;
+        // Missed a message: no deltas until the buffer drains and a keyframe is sent
+        boolean stale;
+
+        Client(SocketChannel channel, SelectionKey key, int slot) {
+            this.channel = channel;
+            this.key = key;
+            this.slot = slot;
+        }
+    }
+
+    // Port 0 picks a free port, see getPort(). Game i uses seed + i.
+    public GameServer(int port, int games, LevelSource levels, long seed) throws IOException {
+        if (games <= 0 || games > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad number of games: " + games);
+        }
+        this.games = new ServerGame[games];
+        this.players = new Client[games];
+        for (int i = 0; i < games; i++) {
+            this.games[i] = new ServerGame(i, seed + i, levels);
+            viewers.add(new ArrayList<>());
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    // Serve until close(), in the calling thread
+    public void run() throws IOException {
+        long nextTick = System.nanoTime() + TICK_NANOS;
+        try {
+            while (server.isOpen()) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 1_000_000) {
+                    selector.select(wait / 1_000_000);
+                } else {
+                    selector.selectNow();
+                }
+                handleKeys();
+                long now = System.nanoTime();
+                if (now < nextTick) {
+                    continue;
+                }
+                if (!ticking) {
+                    if (!tickingStopped) {
+                        flushAll();
+                    }
+                    tickingStopped = true;
+                    nextTick = now + TICK_NANOS;
+                    continue;
+                }
+                int caughtUp = 0;
+                while (now >= nextTick && caughtUp < MAX_CATCH_UP_TICKS) {
+                    tick();
+                    nextTick += TICK_NANOS;
+                    caughtUp++;
+                }
+                if (now >= nextTick) {
+                    long behind = (now - nextTick) / TICK_NANOS + 1;
+                    droppedTicks += behind;
+                    nextTick += behind * TICK_NANOS;
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // close() from another thread
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        for (ServerGame game : games) {
+            game.tick();
+            broadcast(game);
+        }
+        ticks++;
+        tickNanos.record(System.nanoTime() - start);
+    }
+
+    private void broadcast(ServerGame game) {
+        ByteBuffer frame = game.getFrame();
+        List<Client> list = viewers.get(game.getIndex());
+        // Backwards, as a failed write removes the client from the list
+        for (int i = list.size() - 1; i >= 0; i--) {
+            Client client = list.get(i);
+            if (client.stale) {
+                if (client.out.position() == 0) {
+                    // Drained while stale: catch up with the state after this tick
+                    queue(client, game.getKeyframe());
+                    client.stale = false;
+                }
+            } else if (client.out.remaining() >= frame.remaining()) {
+                copy(frame, client.out);
+            } else if (game.isKeyframe()) {
+                queue(client, frame);
+            } else {
+                client.stale = true;
+                resyncs++;
+            }
+            if (client.player || (ticks + client.slot) % SPECTATOR_FLUSH_TICKS == 0) {
+                flush(client);
+            }
+        }
+    }
+
+    private void flushAll() {
+        for (List<Client> list : viewers) {
+            for (int i = list.size() - 1; i >= 0; i--) {
+                flush(list.get(i));
+            }
+        }
+    }
+
+    // Messages a client must get even if they do not fit: grow its buffer
+    private void queue(Client client, ByteBuffer message) {
+        if (client.out.remaining() < message.remaining()) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(client.out.position() + message.remaining());
+            client.out.flip();
+            bigger.put(client.out);
+            client.out = bigger;
+        }
+        copy(message, client.out);
+    }
+
+    // Messages are heap buffers shared by all clients: copy without moving them
+    private static void copy(ByteBuffer message, ByteBuffer out) {
+        out.put(message.array(), message.arrayOffset() + message.position(), message.remaining());
+    }
+
+    private void flush(Client client) {
+        ByteBuffer out = client.out;
+        if (out.position() == 0) {
+            return;
+        }
+        out.flip();
+        try {
+            bytesSent += client.channel.write(out);
+        } catch (IOException e) {
+            out.clear();
+            disconnect(client);
+            return;
+        }
+        out.compact();
+        boolean pending = out.position() > 0;
+        if (pending != client.writing && client.key.isValid()) {
+            client.key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            client.writing = pending;
+        }
+    }
+
+    private void handleKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Client client = (Client) key.attachment();
+            if (key.isReadable()) {
+                read(client);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush(client);
+                if (client.stale && client.out.position() == 0 && client.game >= 0) {
+                    queue(client, games[client.game].getKeyframe());
+                    client.stale = false;
+                    flush(client);
+                }
+            }
+        }
+    }
+
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+                if (channel == null) {
+                    return;
+                }
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Client(channel, key, (int) (accepted++ % SPECTATOR_FLUSH_TICKS)));
+                clients++;
+            } catch (IOException e) {
+                System.err.println("Accept failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void read(Client client) {
+        ByteBuffer in = client.in;
+        try {
+            if (client.channel.read(in) < 0) {
+                disconnect(client);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(client);
+            return;
+        }
+        in.flip();
+        while (in.remaining() >= GameProtocol.CLIENT_MESSAGE_SIZE && client.key.isValid()) {
+            byte type = in.get();
+            byte argument = in.get();
+            int game = in.getShort();
+            if (type == GameProtocol.JOIN && client.game < 0 && game >= 0 && game < games.length) {
+                join(client, game, argument == GameProtocol.PLAYER);
+            } else if (type == GameProtocol.INPUT && client.game >= 0 && players[client.game] == client
+                && argument >= 0 && argument < DIRECTIONS.length) {
+                games[client.game].setInput(DIRECTIONS[argument]);
+            } else if (type != GameProtocol.INPUT) {
+                // Unknown message, bad game or a second JOIN
+                disconnect(client);
+            }
+        }
+        in.compact();
+    }
+
+    private void join(Client client, int game, boolean player) {
+        client.game = game;
+        boolean granted = player && players[game] == null;
+        if (granted) {
+            players[game] = client;
+            client.player = true;
+        }
+        viewers.get(game).add(client);
+        ByteBuffer welcome = ByteBuffer.allocate(GameProtocol.HEADER_SIZE + 5);
+        welcome.put(GameProtocol.WELCOME).putInt(5).putInt(game);
+        welcome.put(granted ? GameProtocol.PLAYER : GameProtocol.SPECTATOR).flip();
+        queue(client, welcome);
+        queue(client, games[game].getKeyframe());
+        flush(client);
+    }
+
+    private void disconnect(Client client) {
+        if (!client.key.isValid()) {
+            return;
+        }
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        if (client.game >= 0) {
+            viewers.get(client.game).remove(client);
+            if (players[client.game] == client) {
+                players[client.game] = null;
+            }
+        }
+        clients--;
+    }
+
+    // Stop advancing the games but keep sending what is queued, e.g. so a load
+    // test can compare every client with the final state
+    public void stopTicking() {
+        ticking = false;
+    }
+
+    // True once no tick will run until close(); the games can then be read
+    // from any thread
+    public boolean isTickingStopped() {
+        return tickingStopped;
+    }
+
+    public int getGameCount() {
+        return games.length;
+    }
+
+    public GameEngine getEngine(int game) {
+        return games[game].getEngine();
+    }
+
+    public int getClientCount() {
+        return clients;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    // Times a client fell behind and had to be resent a keyframe
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    // Nanoseconds to step every game and queue and send its messages
+    public LatencyHistogram getTickNanos() {
+        return tickNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        selector.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        LevelSource levels = args.length > 2 ? LevelSource.open(args[2]) : BuiltInLevels.INSTANCE;
+        try (GameServer server = new GameServer(port, games, levels, System.nanoTime())) {
+            Thread stats = new Thread(() -> {
+                long lastBytes = 0;
+                while (true) {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long bytes = server.getBytesSent();
+                    LatencyHistogram tick = server.getTickNanos();
+                    System.out.printf("%d clients, %d ticks (%d dropped), %d resyncs, %.1f KB/s, tick p99 %.2f ms%n",
+                        server.getClientCount(), server.getTicks(), server.getDroppedTicks(), server.getResyncs(),
+                        (bytes - lastBytes) / 10.0 / 1024, tick.getValueAtPercentile(99) / 1e6);
+                    lastBytes = bytes;
+                }
+            }, "server-stats");
+            stats.setDaemon(true);
+            stats.start();
+            System.out.println(games + " games on port " + server.getPort());
+            server.run();
+        }
+    }
+}
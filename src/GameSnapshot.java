@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+// Estado completo de una partida guardado como una secuencia plana de longs:
+// posiciones, direcciones, puntos restantes, relojes y generadores aleatorios.
+// Lo escribe GameEngine.snapshot() y lo lee GameEngine.restore(); cada clase
+// escribe y lee sus propios campos en el mismo orden. Un mismo GameSnapshot se
+// puede reutilizar: tras el primer uso guardar, copiar y restaurar no asignan
+// memoria, así un bot puede bifurcar la partida miles de veces por decisión.
+public final class GameSnapshot {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] data;
+    private int size;
+
+    public GameSnapshot() {
+        data = new long[INITIAL_CAPACITY];
+    }
+
+    public GameSnapshot(GameSnapshot other) {
+        data = new long[Math.max(INITIAL_CAPACITY, other.size)];
+        copyFrom(other);
+    }
+
+    // Overwrite this snapshot with another one
+    public void copyFrom(GameSnapshot other) {
+        if (data.length < other.size) {
+            data = new long[other.size];
+        }
+        System.arraycopy(other.data, 0, data, 0, other.size);
+        size = other.size;
+    }
+
+    public boolean sameState(GameSnapshot other) {
+        return Arrays.equals(data, 0, size, other.data, 0, other.size);
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void put(long value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, Math.max(16, data.length * 2));
+        }
+        data[size++] = value;
+    }
+
+    void putBoolean(boolean value) {
+        put(value ? 1 : 0);
+    }
+
+    // Number of longs in the snapshot
+    public int size() {
+        return size;
+    }
+
+    // Read cursor kept outside the snapshot, so several engines (e.g. search
+    // threads) can restore the same snapshot at the same time
+    static final class Reader {
+        private GameSnapshot snapshot;
+        private int position;
+
+        Reader start(GameSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.position = 0;
+            return this;
+        }
+
+        long get() {
+            if (position >= snapshot.size) {
+                throw new IllegalStateException("Snapshot underflow at " + position);
+            }
+            return snapshot.data[position++];
+        }
+
+        int getInt() {
+            return (int) get();
+        }
+
+        boolean getBoolean() {
+            return get() != 0;
+        }
+    }
+}
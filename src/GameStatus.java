@@ -0,0 +1,3 @@
+public enum GameStatus {
+    RUNNING, LEVEL_COMPLETE, GAME_OVER
+}
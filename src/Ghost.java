@@ -1,62 +1,138 @@
 import java.awt.*;
-import java.util.Random;
 
 public class Ghost {
     private int x, y;
+    private int previousX, previousY;
     private int startX, startY;
     private Direction direction;
     private Color color;
-    private Random random = new Random();
-    private Board board;
+    private GameRandom random;
+    private GameEngine engine;
     private int spriteSize;
+    // Pixels per tick, only changed while aligned on a cell
+    private int speed = GameEngine.NORMAL_SPEED;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GhostStrategy FRIGHTENED = new FrightenedStrategy();
+    private GhostStrategy chaseStrategy;
+    private GhostStrategy scatterStrategy;
+    // Slot in SpriteAtlas, looked up on first draw
+    private int sprite = -1;
 
-    public Ghost(int x, int y, Color color, Board board) {
+    public Ghost(int x, int y, Color color, GameEngine engine, GameRandom random,
+                 GhostStrategy chaseStrategy, GhostStrategy scatterStrategy) {
         this.x = x;
         this.y = y;
+        this.previousX = x;
+        this.previousY = y;
         this.startX = x;
         this.startY = y;
         this.color = color;
-        this.board = board;
-        this.spriteSize = board.getSpriteSize();
-        this.direction = Direction.values()[random.nextInt(4)];
+        this.engine = engine;
+        this.random = random;
+        this.chaseStrategy = chaseStrategy;
+        this.scatterStrategy = scatterStrategy;
+        this.spriteSize = engine.getSpriteSize();
+        this.direction = DIRECTIONS[random.nextInt(4)];
     }
 
     public void draw(Graphics g) {
-        g.setColor(color);
-        g.fillOval(x, y, spriteSize, spriteSize);
+        draw(g, 1.0);
     }
 
-    public void move() {
-        if (random.nextInt(10) == 0) {
-            direction = Direction.values()[random.nextInt(4)];
+    public void draw(Graphics g, double alpha) {
+        if (sprite < 0) {
+            sprite = SpriteAtlas.INSTANCE.ghostSprite(color);
         }
-        
-        int newX = x;
-        int newY = y;
-        
-        switch (direction) {
-            case LEFT: newX -= 4; break;
-            case RIGHT: newX += 4; break;
-            case UP: newY -= 4; break;
-            case DOWN: newY += 4; break;
+        SpriteAtlas.INSTANCE.drawGhost(g, sprite, GameEngine.interpolate(previousX, x, alpha),
+            GameEngine.interpolate(previousY, y, alpha));
+    }
+
+    public void move() {
+        previousX = x;
+        previousY = y;
+        // Solo se decide al llegar al centro de una celda que es un cruce
+        // (o si la dirección actual choca con una pared)
+        int blockSize = GameEngine.BLOCK_SIZE;
+        if (x % blockSize == 0 && y % blockSize == 0) {
+            speed = engine.getGhostMode() == GhostMode.FRIGHTENED
+                ? GameEngine.FRIGHTENED_GHOST_SPEED : GameEngine.NORMAL_SPEED;
+            MazeGraph graph = engine.getMazeGraph();
+            int node = graph.node(x / blockSize, y / blockSize);
+            if (node >= 0 && (graph.isJunction(node) || graph.neighbor(node, direction) < 0)) {
+                Direction chosen = currentStrategy().chooseDirection(this, engine, node);
+                if (chosen != null) {
+                    direction = chosen;
+                }
+            }
         }
         
-        // Apply screen wrapping
-        newX = board.wrapX(newX);
-        newY = board.wrapY(newY);
-        
-        // Verificar colisión con paredes
-        int edgeOffset = spriteSize - 1;
-        if (!board.isWall(newX, newY) && !board.isWall(newX + edgeOffset, newY) &&
-            !board.isWall(newX, newY + edgeOffset) && !board.isWall(newX + edgeOffset, newY + edgeOffset)) {
-            x = newX;
-            y = newY;
+        long next = engine.getMoveTable().step(x, y, direction, speed);
+        if (next != MoveTable.BLOCKED) {
+            x = MoveTable.x(next);
+            y = MoveTable.y(next);
         } else {
             // Cambiar dirección si choca con una pared
-            direction = Direction.values()[random.nextInt(4)];
+            direction = DIRECTIONS[random.nextInt(4)];
         }
     }
     
+    private GhostStrategy currentStrategy() {
+        switch (engine.getGhostMode()) {
+            case FRIGHTENED: return FRIGHTENED;
+            case SCATTER: return scatterStrategy;
+            default: return chaseStrategy;
+        }
+    }
+
+    // Los fantasmas dan media vuelta al cambiar de modo
+    public void reverse() {
+        direction = direction.opposite();
+    }
+
+    // Maze node under the ghost's center
+    public int getNode() {
+        int half = spriteSize / 2;
+        int blockSize = GameEngine.BLOCK_SIZE;
+        return engine.getMazeGraph().node(engine.wrapX(x + half) / blockSize, engine.wrapY(y + half) / blockSize);
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    void writeTo(GameSnapshot snapshot) {
+        snapshot.put(x);
+        snapshot.put(y);
+        snapshot.put(previousX);
+        snapshot.put(previousY);
+        snapshot.put(direction.ordinal());
+        snapshot.put(speed);
+        random.writeTo(snapshot);
+    }
+
+    void readFrom(GameSnapshot.Reader in) {
+        x = in.getInt();
+        y = in.getInt();
+        previousX = in.getInt();
+        previousY = in.getInt();
+        direction = DIRECTIONS[in.getInt()];
+        speed = in.getInt();
+        random.readFrom(in);
+    }
+
+    // Same ghost for another engine; the caller restores its state afterwards
+    Ghost copyFor(GameEngine engine) {
+        return new Ghost(startX, startY, color, engine, new GameRandom(0), chaseStrategy, scatterStrategy);
+    }
+
+    GameRandom getRandom() {
+        return random;
+    }
+
     public int getX() {
         return x;
     }
@@ -69,9 +145,17 @@ public class Ghost {
         return spriteSize;
     }
     
+    void setStart(int x, int y) {
+        this.startX = x;
+        this.startY = y;
+    }
+    
     public void reset() {
         this.x = startX;
         this.y = startY;
-        this.direction = Direction.values()[random.nextInt(4)];
+        this.previousX = startX;
+        this.previousY = startY;
+        this.direction = DIRECTIONS[random.nextInt(4)];
+        this.speed = GameEngine.NORMAL_SPEED;
     }
 }
\ No newline at end of file
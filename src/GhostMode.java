@@ -0,0 +1,3 @@
+public enum GhostMode {
+    SCATTER, CHASE, FRIGHTENED
+}
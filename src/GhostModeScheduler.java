@@ -0,0 +1,53 @@
+// Alterna las fases SCATTER/CHASE de los fantasmas y activa FRIGHTENED mientras
+// Pac-Man tiene el power-up (el reloj de fases se detiene mientras tanto).
+public class GhostModeScheduler {
+    // Scatter, chase, scatter, chase... after the last phase ghosts chase forever
+    static final long[] PHASE_TICKS = {
+        GameClock.millisToTicks(7000), GameClock.millisToTicks(20000),
+        GameClock.millisToTicks(7000), GameClock.millisToTicks(20000),
+        GameClock.millisToTicks(5000), GameClock.millisToTicks(20000),
+        GameClock.millisToTicks(5000)
+    };
+
+    private static final GhostMode[] MODES = GhostMode.values();
+
+    private int phase = 0;
+    private long phaseTicks = 0;
+    private GhostMode mode = GhostMode.SCATTER;
+
+    public GhostMode update(boolean pacmanPowered) {
+        if (pacmanPowered) {
+            mode = GhostMode.FRIGHTENED;
+            return mode;
+        }
+        phaseTicks++;
+        if (phase < PHASE_TICKS.length && phaseTicks >= PHASE_TICKS[phase]) {
+            phase++;
+            phaseTicks = 0;
+        }
+        mode = phase % 2 == 0 ? GhostMode.SCATTER : GhostMode.CHASE;
+        return mode;
+    }
+
+    public GhostMode getMode() {
+        return mode;
+    }
+
+    void writeTo(GameSnapshot snapshot) {
+        snapshot.put(phase);
+        snapshot.put(phaseTicks);
+        snapshot.put(mode.ordinal());
+    }
+
+    void readFrom(GameSnapshot.Reader in) {
+        phase = in.getInt();
+        phaseTicks = in.get();
+        mode = MODES[in.getInt()];
+    }
+
+    public void reset() {
+        phase = 0;
+        phaseTicks = 0;
+        mode = GhostMode.SCATTER;
+    }
+}
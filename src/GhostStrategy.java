@@ -0,0 +1,6 @@
+// Decide hacia dónde gira un fantasma. Solo se consulta cuando el fantasma está
+// alineado con una celda que es un cruce, así que puede usar las tablas del
+// MazeGraph sin coste apreciable.
+public interface GhostStrategy {
+    Direction chooseDirection(Ghost ghost, GameEngine engine, int node);
+}
@@ -0,0 +1,40 @@
+import java.awt.event.KeyEvent;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Controlador de teclado: guarda la última flecha pulsada hasta el siguiente tick.
+// Las teclas llegan por el hilo de eventos y el tick se ejecuta en el del juego.
+public class KeyboardController implements PacmanController {
+    // Taken with getAndSet so a key pressed while the tick reads it isn't lost
+    private final AtomicReference<Direction> pending = new AtomicReference<>();
+    // System.nanoTime() when the pending key was pressed, for latency metrics;
+    // written before 'pending' so a reader that sees the key sees its time
+    private volatile long pendingSince;
+    private long lastPressedNanos;
+
+    public void keyPressed(KeyEvent e) {
+        Direction direction;
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT: direction = Direction.LEFT; break;
+            case KeyEvent.VK_RIGHT: direction = Direction.RIGHT; break;
+            case KeyEvent.VK_UP: direction = Direction.UP; break;
+            case KeyEvent.VK_DOWN: direction = Direction.DOWN; break;
+            default: return;
+        }
+        pendingSince = System.nanoTime();
+        pending.set(direction);
+    }
+
+    @Override
+    public Direction nextDirection(GameEngine engine) {
+        Direction direction = pending.getAndSet(null);
+        if (direction != null) {
+            lastPressedNanos = pendingSince;
+        }
+        return direction;
+    }
+
+    // When the key returned by the last non-null nextDirection() was pressed
+    public long getLastPressedNanos() {
+        return lastPressedNanos;
+    }
+}
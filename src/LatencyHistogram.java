@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histograma de latencias al estilo de HdrHistogram: cada potencia de dos se
+// divide en SUB_BUCKETS cubetas lineales, así cualquier percentil tiene un
+// error relativo menor del 1/SUB_BUCKETS (~3%) con memoria fija (un long por
+// cubeta) para valores de 0 a Long.MAX_VALUE. record() es O(1) y no asigna
+// memoria. Solo un hilo puede escribir (el del bucle de juego), así se evitan
+// las operaciones atómicas; cualquier hilo puede leer mientras tanto.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // Single writer: plain read-modify-write, published with ordered stores.
+    // Negative values (a clock going backwards) count as 0.
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int bucket = bucket(value);
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+        count.lazySet(count.get() + 1);
+        sum.lazySet(sum.get() + value);
+        if (value > max.get()) {
+            max.lazySet(value);
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Largest value that falls in the bucket
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    // Value below which 'percentile' percent of the recorded values fall,
+    // rounded up to the end of its bucket; 0 if nothing was recorded
+    public long getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Only safe from the writer thread, or while nothing is being recorded
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
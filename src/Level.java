@@ -0,0 +1,260 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Nivel compilado e inmutable: paredes y puntos iniciales guardados como
+// bitsets de longs en orden fila a fila (índice = fila * ancho + columna),
+// más las casillas de salida de Pac-Man y de los fantasmas.
+// Se comparte entre todas las partidas que juegan el mismo nivel.
+public final class Level {
+    // Códigos de celda: 0=pared, 1=punto, 2=camino vacío
+    public static final int WALL = 0;
+    public static final int DOT = 1;
+    public static final int EMPTY = 2;
+
+    // Largest side accepted when reading a level, to reject corrupt files early
+    static final int MAX_SIDE = 4096;
+
+    private final String name;
+    private final int width;
+    private final int height;
+    private final long[] walls;
+    private final long[] dots;
+    private final int dotCount;
+    private final int pacmanStart;    // cell index
+    private final int[] ghostStarts;  // cell indexes
+    private volatile MazeGraph mazeGraph;
+    private volatile OpenCells openCells;
+    private volatile MoveTable moveTable;
+
+    Level(String name, int width, int height, long[] walls, long[] dots, int pacmanStart, int[] ghostStarts) {
+        if (width <= 0 || height <= 0 || width > MAX_SIDE || height > MAX_SIDE) {
+            throw new IllegalArgumentException(name + ": bad size " + width + "x" + height);
+        }
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.walls = walls;
+        this.dots = dots;
+        this.pacmanStart = pacmanStart;
+        this.ghostStarts = ghostStarts;
+        if (isWallCell(pacmanStart)) {
+            throw new IllegalArgumentException(name + ": Pacman starts inside a wall");
+        }
+        if (ghostStarts.length == 0) {
+            throw new IllegalArgumentException(name + ": no ghost start");
+        }
+        for (int start : ghostStarts) {
+            if (isWallCell(start)) {
+                throw new IllegalArgumentException(name + ": a ghost starts inside a wall");
+            }
+        }
+        int count = 0;
+        for (long word : dots) {
+            count += Long.bitCount(word);
+        }
+        this.dotCount = count;
+    }
+
+    // cells[row][col] holds WALL, DOT or EMPTY; starts are (col, row) pairs
+    public static Level fromCells(String name, int[][] cells, int pacmanCol, int pacmanRow, int[][] ghostStarts) {
+        int height = cells.length;
+        int width = cells[0].length;
+        long[] walls = new long[words(width * height)];
+        long[] dots = new long[words(width * height)];
+        for (int row = 0; row < height; row++) {
+            if (cells[row].length != width) {
+                throw new IllegalArgumentException(name + ": row " + row + " is not " + width + " cells wide");
+            }
+            for (int col = 0; col < width; col++) {
+                int i = row * width + col;
+                if (cells[row][col] == WALL) {
+                    walls[i >>> 6] |= 1L << i;
+                } else if (cells[row][col] == DOT) {
+                    dots[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        int[] ghosts = new int[ghostStarts.length];
+        for (int i = 0; i < ghostStarts.length; i++) {
+            ghosts[i] = cellIndex(name, width, height, ghostStarts[i][0], ghostStarts[i][1]);
+        }
+        return new Level(name, width, height, walls, dots, cellIndex(name, width, height, pacmanCol, pacmanRow), ghosts);
+    }
+
+    private static int cellIndex(String name, int width, int height, int col, int row) {
+        if (col < 0 || col >= width || row < 0 || row >= height) {
+            throw new IllegalArgumentException(name + ": start (" + col + ", " + row + ") is outside the level");
+        }
+        return row * width + col;
+    }
+
+    // Compiled form used in level packs:
+    // width, height, Pacman start, ghost count, ghost starts (ints), name
+    // (short length + UTF-8), then the wall and dot bitsets (longs)
+    void writeTo(ByteBuffer out) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        out.putInt(width);
+        out.putInt(height);
+        out.putInt(pacmanStart);
+        out.putInt(ghostStarts.length);
+        for (int start : ghostStarts) {
+            out.putInt(start);
+        }
+        out.putShort((short) nameBytes.length);
+        out.put(nameBytes);
+        for (long word : walls) {
+            out.putLong(word);
+        }
+        for (long word : dots) {
+            out.putLong(word);
+        }
+    }
+
+    int compiledSize() {
+        return 4 * 4 + 4 * ghostStarts.length + 2 + name.getBytes(StandardCharsets.UTF_8).length
+            + 2 * 8 * walls.length;
+    }
+
+    static Level read(ByteBuffer in) {
+        int width = in.getInt();
+        int height = in.getInt();
+        if (width <= 0 || height <= 0 || width > MAX_SIDE || height > MAX_SIDE) {
+            throw new IllegalArgumentException("Corrupt level: size " + width + "x" + height);
+        }
+        int pacmanStart = in.getInt();
+        int ghostCount = in.getInt();
+        if (ghostCount < 0 || ghostCount > width * height) {
+            throw new IllegalArgumentException("Corrupt level: " + ghostCount + " ghosts");
+        }
+        int[] ghostStarts = new int[ghostCount];
+        for (int i = 0; i < ghostCount; i++) {
+            ghostStarts[i] = checkCell(in.getInt(), width, height);
+        }
+        byte[] nameBytes = new byte[in.getShort() & 0xFFFF];
+        in.get(nameBytes);
+        long[] walls = new long[words(width * height)];
+        long[] dots = new long[walls.length];
+        for (int i = 0; i < walls.length; i++) {
+            walls[i] = in.getLong();
+        }
+        for (int i = 0; i < dots.length; i++) {
+            dots[i] = in.getLong();
+        }
+        return new Level(new String(nameBytes, StandardCharsets.UTF_8), width, height, walls, dots,
+            checkCell(pacmanStart, width, height), ghostStarts);
+    }
+
+    private static int checkCell(int cell, int width, int height) {
+        if (cell < 0 || cell >= width * height) {
+            throw new IllegalArgumentException("Corrupt level: cell " + cell + " out of range");
+        }
+        return cell;
+    }
+
+    static int words(int cells) {
+        return (cells + 63) >>> 6;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getDotCount() {
+        return dotCount;
+    }
+
+    public int getPacmanCol() {
+        return pacmanStart % width;
+    }
+
+    public int getPacmanRow() {
+        return pacmanStart / width;
+    }
+
+    public int getGhostStartCount() {
+        return ghostStarts.length;
+    }
+
+    public int getGhostCol(int i) {
+        return ghostStarts[i] % width;
+    }
+
+    public int getGhostRow(int i) {
+        return ghostStarts[i] / width;
+    }
+
+    public boolean hasDot(int col, int row) {
+        int i = row * width + col;
+        return (dots[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private boolean isWallCell(int i) {
+        return (walls[i >>> 6] & (1L << i)) != 0;
+    }
+
+    // Cells outside the level count as walls
+    public boolean isWall(int col, int row) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return true;
+        }
+        int i = row * width + col;
+        return (walls[i >>> 6] & (1L << i)) != 0;
+    }
+
+    // Built on first use and shared by every game playing this level
+    public MazeGraph getMazeGraph() {
+        MazeGraph graph = mazeGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = mazeGraph;
+                if (graph == null) {
+                    graph = new MazeGraph(this);
+                    mazeGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    // Walkable cells for spawning, built on first use like the maze graph
+    public OpenCells getOpenCells() {
+        OpenCells cells = openCells;
+        if (cells == null) {
+            synchronized (this) {
+                cells = openCells;
+                if (cells == null) {
+                    cells = new OpenCells(this);
+                    openCells = cells;
+                }
+            }
+        }
+        return cells;
+    }
+
+    // Legal moves for GameEngine.BLOCK_SIZE sprites, built on first use
+    public MoveTable getMoveTable() {
+        MoveTable table = moveTable;
+        if (table == null) {
+            synchronized (this) {
+                table = moveTable;
+                if (table == null) {
+                    table = new MoveTable(this);
+                    moveTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    void copyDotsTo(long[] target) {
+        System.arraycopy(dots, 0, target, 0, dots.length);
+    }
+}
@@ -0,0 +1,77 @@
+// Estado mutable del nivel en una partida: referencia al Level compartido
+// (paredes) más una copia propia del bitset de puntos que quedan.
+public final class LevelGrid {
+    private Level level;
+    private long[] dots = new long[0];
+    private int remainingDots;
+
+    public void load(Level level) {
+        this.level = level;
+        int words = Level.words(level.getWidth() * level.getHeight());
+        if (dots.length != words) {
+            dots = new long[words];
+        }
+        level.copyDotsTo(dots);
+        remainingDots = level.getDotCount();
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public int getWidth() {
+        return level.getWidth();
+    }
+
+    public int getHeight() {
+        return level.getHeight();
+    }
+
+    public boolean isWall(int col, int row) {
+        return level.isWall(col, row);
+    }
+
+    public boolean hasDot(int col, int row) {
+        int i = row * level.getWidth() + col;
+        return (dots[i >>> 6] & (1L << i)) != 0;
+    }
+
+    // Clear the dot at (col, row); returns false if there was none
+    public boolean eatDot(int col, int row) {
+        int i = row * level.getWidth() + col;
+        long mask = 1L << i;
+        long word = dots[i >>> 6];
+        if ((word & mask) == 0) {
+            return false;
+        }
+        dots[i >>> 6] = word & ~mask;
+        remainingDots--;
+        return true;
+    }
+
+    public int getRemainingDots() {
+        return remainingDots;
+    }
+
+    // Dots are saved word by word; the level itself is restored by the engine
+    void writeTo(GameSnapshot snapshot) {
+        snapshot.put(remainingDots);
+        for (long word : dots) {
+            snapshot.put(word);
+        }
+    }
+
+    void readFrom(GameSnapshot.Reader in) {
+        remainingDots = in.getInt();
+        for (int i = 0; i < dots.length; i++) {
+            dots[i] = in.get();
+        }
+    }
+
+    public int getCell(int row, int col) {
+        if (level.isWall(col, row)) {
+            return Level.WALL;
+        }
+        return hasDot(col, row) ? Level.DOT : Level.EMPTY;
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Pack de niveles compilado por LevelPackCompiler. El fichero se proyecta en
+// memoria (FileChannel.map) y cada nivel se decodifica solo cuando se juega;
+// los últimos niveles usados se guardan en una caché LRU junto con su MazeGraph,
+// así cambiar de nivel no vuelve a leer ni a recalcular nada.
+//
+//   cabecera: magic "PMLP" (int), versión (int), número de niveles (int)
+//   índice:   posición de cada nivel en el fichero (long)
+//   niveles:  ver Level.writeTo()
+public final class LevelPack implements LevelSource {
+    static final int MAGIC = 0x504d4c50;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final int levelCount;
+    private final Map<Integer, Level> cache;
+
+    private LevelPack(Path path, MappedByteBuffer data, int cacheSize) throws IOException {
+        this.path = path;
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a compiled level pack");
+        }
+        int version = data.getInt(4);
+        if (version != VERSION) {
+            throw new IOException(path + ": unsupported level pack version " + version);
+        }
+        levelCount = data.getInt(8);
+        if (levelCount <= 0 || HEADER_SIZE + 8L * levelCount > data.capacity()) {
+            throw new IOException(path + ": bad level count " + levelCount);
+        }
+        this.cache = new LinkedHashMap<Integer, Level>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Level> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static LevelPack open(Path path) throws IOException {
+        return open(path, DEFAULT_CACHE_SIZE);
+    }
+
+    public static LevelPack open(Path path, int cacheSize) throws IOException {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cacheSize must be positive");
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new LevelPack(path, data, cacheSize);
+        }
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    @Override
+    public Level getLevel(int index) {
+        if (index < 0 || index >= levelCount) {
+            throw new IndexOutOfBoundsException("Level " + index + " of " + levelCount);
+        }
+        synchronized (cache) {
+            Level level = cache.get(index);
+            if (level == null) {
+                level = decode(index);
+                cache.put(index, level);
+            }
+            return level;
+        }
+    }
+
+    private Level decode(int index) {
+        long offset = data.getLong(HEADER_SIZE + 8 * index);
+        if (offset < 0 || offset >= data.capacity()) {
+            throw new IllegalStateException(path + ": level " + index + " points outside the file");
+        }
+        // Independent position so the shared mapping is never moved
+        ByteBuffer in = data.duplicate();
+        in.position((int) offset);
+        try {
+            return Level.read(in);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException(path + ": level " + index + " is corrupt", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return path.toString();
+    }
+}
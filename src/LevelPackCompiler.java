@@ -0,0 +1,160 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compila un fichero de niveles en texto al formato binario de LevelPack.
+// Formato de texto (una cuadrícula por nivel, todas las filas del mismo ancho):
+//
+//   ; comentario
+//   = Nombre del nivel
+//   ####################
+//   #........##...G....#
+//   #.##.###.P#....#...#
+//
+//   '#' pared, '.' punto, ' ' o '-' camino vacío, 'P' salida de Pac-Man,
+//   'G' salida de un fantasma; en minúscula ('p', 'g') la casilla tiene punto.
+//   Las salidas de fantasmas se reparten en orden de lectura (fila a fila).
+//   Los bordes sin pared forman túneles hacia el lado contrario. Como los
+//   editores suelen quitar los espacios finales, mejor usar '-' en los bordes.
+//
+// Uso: java -cp bin LevelPackCompiler niveles.txt niveles.pack
+public final class LevelPackCompiler {
+    private LevelPackCompiler() {
+    }
+
+    public static List<Level> parse(BufferedReader reader) throws IOException {
+        List<Level> levels = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        List<Integer> rowLines = new ArrayList<>();
+        String name = null;
+        int nameLine = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.startsWith(";")) {
+                continue;
+            }
+            if (line.startsWith("=")) {
+                if (name != null) {
+                    levels.add(toLevel(name, nameLine, rows, rowLines));
+                    rows.clear();
+                    rowLines.clear();
+                }
+                name = line.substring(1).trim();
+                nameLine = lineNumber;
+            } else if (name != null && !line.trim().isEmpty()) {
+                rows.add(line);
+                rowLines.add(lineNumber);
+            } else if (name == null && !line.trim().isEmpty()) {
+                throw new IllegalArgumentException("line " + lineNumber + ": expected '= name' before the grid");
+            }
+        }
+        if (name != null) {
+            levels.add(toLevel(name, nameLine, rows, rowLines));
+        }
+        return levels;
+    }
+
+    private static Level toLevel(String name, int line, List<String> rows, List<Integer> rowLines) {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("line " + line + ": level '" + name + "' has no grid");
+        }
+        int width = rows.get(0).length();
+        int[][] cells = new int[rows.size()][width];
+        int pacmanCol = -1;
+        int pacmanRow = -1;
+        List<int[]> ghosts = new ArrayList<>();
+        for (int row = 0; row < rows.size(); row++) {
+            String text = rows.get(row);
+            if (text.length() != width) {
+                throw new IllegalArgumentException("line " + rowLines.get(row) + ": expected " + width
+                    + " cells, found " + text.length());
+            }
+            for (int col = 0; col < width; col++) {
+                char c = text.charAt(col);
+                switch (c) {
+                    case '#': cells[row][col] = Level.WALL; break;
+                    case '.': cells[row][col] = Level.DOT; break;
+                    case ' ':
+                    case '-': cells[row][col] = Level.EMPTY; break;
+                    case 'P':
+                    case 'p':
+                        if (pacmanCol >= 0) {
+                            throw new IllegalArgumentException("line " + rowLines.get(row) + ": second 'P'");
+                        }
+                        cells[row][col] = c == 'p' ? Level.DOT : Level.EMPTY;
+                        pacmanCol = col;
+                        pacmanRow = row;
+                        break;
+                    case 'G': cells[row][col] = Level.EMPTY; ghosts.add(new int[] {col, row}); break;
+                    case 'g': cells[row][col] = Level.DOT; ghosts.add(new int[] {col, row}); break;
+                    default:
+                        throw new IllegalArgumentException("line " + rowLines.get(row) + ": unknown cell '" + c + "'");
+                }
+            }
+        }
+        if (pacmanCol < 0) {
+            throw new IllegalArgumentException("line " + line + ": level '" + name + "' has no 'P'");
+        }
+        return Level.fromCells(name, cells, pacmanCol, pacmanRow, ghosts.toArray(new int[0][]));
+    }
+
+    public static void write(List<Level> levels, Path file) throws IOException {
+        int indexSize = LevelPack.HEADER_SIZE + 8 * levels.size();
+        long[] offsets = new long[levels.size()];
+        long offset = indexSize;
+        for (int i = 0; i < levels.size(); i++) {
+            offsets[i] = offset;
+            offset += levels.get(i).compiledSize();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(indexSize);
+            header.putInt(LevelPack.MAGIC);
+            header.putInt(LevelPack.VERSION);
+            header.putInt(levels.size());
+            for (long levelOffset : offsets) {
+                header.putLong(levelOffset);
+            }
+            writeFully(channel, header);
+            for (Level level : levels) {
+                ByteBuffer record = ByteBuffer.allocate(level.compiledSize());
+                level.writeTo(record);
+                writeFully(channel, record);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java LevelPackCompiler <levels.txt> <levels.pack>");
+            System.exit(2);
+        }
+        List<Level> levels;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            levels = parse(reader);
+        }
+        if (levels.isEmpty()) {
+            System.err.println(args[0] + ": no levels");
+            System.exit(1);
+        }
+        write(levels, Paths.get(args[1]));
+        System.out.println("Compiled " + levels.size() + " levels into " + args[1]);
+    }
+}
@@ -0,0 +1,31 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// Origen de los niveles de una partida: los integrados en el juego, un pack
+// cargado de disco o laberintos generados sin fin. Las implementaciones deben
+// poder usarse desde varios hilos.
+public interface LevelSource {
+    int getLevelCount();
+
+    // Compiled level; index is in [0, getLevelCount())
+    Level getLevel(int index);
+
+    // Identifies the source in replays: "" for the built-in levels,
+    // "endless:<seed>:<W>x<H>" for generated mazes, else the pack path
+    String getName();
+
+    // Inverse of getName(); a bare "endless" picks a random seed
+    static LevelSource open(String name) throws IOException {
+        if (name.isEmpty()) {
+            return BuiltInLevels.INSTANCE;
+        }
+        if (name.equals(EndlessLevels.PREFIX) || name.startsWith(EndlessLevels.PREFIX + ":")) {
+            try {
+                return EndlessLevels.fromName(name);
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Bad endless level source '" + name + "'", e);
+            }
+        }
+        return LevelPack.open(Paths.get(name));
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Comprueba que un nivel se puede jugar: Pac-Man llega a todos los puntos y
+// los fantasmas pueden salir de su casa, hay algo que comer, y cada borde
+// abierto tiene su pareja en el lado contrario (túneles como en wrapX/wrapY).
+// No construye el MazeGraph, así que sirve para validar miles de niveles.
+public final class LevelValidator {
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private LevelValidator() {
+    }
+
+    // Problems found, or an empty list if the level is playable
+    public static List<String> validate(Level level) {
+        List<String> problems = new ArrayList<>();
+        int width = level.getWidth();
+        int height = level.getHeight();
+        int[] cells = new int[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                cells[row * width + col] = level.isWall(col, row) ? Level.WALL
+                    : level.hasDot(col, row) ? Level.DOT : Level.EMPTY;
+            }
+        }
+
+        if (level.getDotCount() == 0) {
+            problems.add("no dots");
+        }
+        for (int row = 0; row < height; row++) {
+            if ((cells[row * width] == Level.WALL) != (cells[row * width + width - 1] == Level.WALL)) {
+                problems.add("row " + row + " is open on one side only");
+            }
+        }
+        for (int col = 0; col < width; col++) {
+            if ((cells[col] == Level.WALL) != (cells[(height - 1) * width + col] == Level.WALL)) {
+                problems.add("column " + col + " is open on one side only");
+            }
+        }
+
+        boolean[] reached = new boolean[cells.length];
+        flood(cells, width, height, level.getPacmanRow() * width + level.getPacmanCol(), reached,
+            new int[cells.length]);
+        int unreachableDots = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == Level.DOT && !reached[cell]) {
+                unreachableDots++;
+            }
+        }
+        if (unreachableDots > 0) {
+            problems.add(unreachableDots + " dots Pacman cannot reach");
+        }
+        for (int i = 0; i < level.getGhostStartCount(); i++) {
+            if (!reached[level.getGhostRow(i) * width + level.getGhostCol(i)]) {
+                problems.add("ghost start " + i + " is cut off from Pacman");
+            }
+        }
+        return problems;
+    }
+
+    // Mark every open cell reachable from 'start', crossing the borders like wrapX/wrapY
+    static void flood(int[] cells, int width, int height, int start, boolean[] reached, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        reached[start] = true;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            int col = cell % width;
+            int row = cell / width;
+            for (int d = 0; d < 4; d++) {
+                int next = Math.floorMod(row + DY[d], height) * width + Math.floorMod(col + DX[d], width);
+                if (!reached[next] && cells[next] != Level.WALL) {
+                    reached[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+}
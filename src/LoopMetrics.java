@@ -0,0 +1,73 @@
+// Métricas del bucle de juego: duración media (EWMA) y máxima de los ticks y
+// los frames, ticks y frames por segundo, y ticks descartados por ir con retraso.
+// Las escribe el hilo del bucle y se pueden leer desde cualquier hilo.
+public class LoopMetrics {
+    private static final double SMOOTHING = 0.05;
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private volatile double tickMillis;
+    private volatile double maxTickMillis;
+    private volatile double frameMillis;
+    private volatile double maxFrameMillis;
+    private volatile double ticksPerSecond;
+    private volatile double framesPerSecond;
+    private volatile long droppedTicks;
+
+    private long windowStart = System.nanoTime();
+    private int windowTicks;
+    private int windowFrames;
+
+    void recordTick(long nanos) {
+        double millis = nanos / 1e6;
+        tickMillis += (millis - tickMillis) * SMOOTHING;
+        maxTickMillis = Math.max(maxTickMillis, millis);
+        windowTicks++;
+    }
+
+    void recordFrame(long nanos, long now) {
+        double millis = nanos / 1e6;
+        frameMillis += (millis - frameMillis) * SMOOTHING;
+        maxFrameMillis = Math.max(maxFrameMillis, millis);
+        windowFrames++;
+        long elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            ticksPerSecond = windowTicks * 1e9 / elapsed;
+            framesPerSecond = windowFrames * 1e9 / elapsed;
+            windowTicks = 0;
+            windowFrames = 0;
+            windowStart = now;
+        }
+    }
+
+    void recordDroppedTicks(long ticks) {
+        droppedTicks += ticks;
+    }
+
+    public double getTickMillis() {
+        return tickMillis;
+    }
+
+    public double getMaxTickMillis() {
+        return maxTickMillis;
+    }
+
+    public double getFrameMillis() {
+        return frameMillis;
+    }
+
+    public double getMaxFrameMillis() {
+        return maxFrameMillis;
+    }
+
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+}
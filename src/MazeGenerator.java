@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Generador de laberintos con semilla. Excava un laberinto en la mitad
+// izquierda (DFS sobre las celdas impares), quita los callejones sin salida
+// para que haya circuitos, lo refleja en la mitad derecha y añade una casa de
+// fantasmas en el centro con un pasillo alrededor y un túnel a la altura de la
+// casa (los bordes abiertos se cruzan como en wrapX). Si alguna zona queda
+// aislada se abre una pared para unirla; el resultado pasa por LevelValidator.
+//
+// Uso: java -cp bin MazeGenerator [niveles] [ancho] [alto] [semilla] [fichero.pack]
+// Genera y valida los niveles en paralelo y, con un fichero, los guarda como pack.
+public final class MazeGenerator {
+    public static final int MIN_SIZE = 11;
+    private static final int WALL = Level.WALL;
+    private static final int DOT = Level.DOT;
+    private static final int EMPTY = Level.EMPTY;
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private static final int HOUSE_HEIGHT = 6;
+
+    private final int width;
+    private final int height;
+    private final int houseTop;
+    private final int houseLeft;
+
+    // Odd sizes keep the lattice of corridors aligned with both borders
+    public MazeGenerator(int width, int height) {
+        if (width < MIN_SIZE || height < MIN_SIZE || width % 2 == 0 || height % 2 == 0
+            || width > Level.MAX_SIDE || height > Level.MAX_SIDE) {
+            throw new IllegalArgumentException("Maze size must be odd and at least " + MIN_SIZE + ": "
+                + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.houseTop = (height / 2 - HOUSE_HEIGHT / 2) | 1;
+        int left = width / 2 - 4;
+        this.houseLeft = left % 2 == 0 ? left - 1 : left;
+    }
+
+    public Level generate(long seed) {
+        return generate(seed, "Laberinto " + Long.toHexString(seed));
+    }
+
+    public Level generate(long seed, String name) {
+        GameRandom random = new GameRandom(seed);
+        int[] cells = new int[width * height];
+        Arrays.fill(cells, WALL);
+        int mid = width / 2;
+
+        carveLattice(cells, random, mid);
+        removeDeadEnds(cells, random, mid);
+
+        // Ghost house: a walled room with a door on top, inside a corridor loop
+        // that sits on the odd rows and columns like the rest of the maze
+        for (int row = houseTop; row <= houseTop + HOUSE_HEIGHT; row++) {
+            for (int col = houseLeft; col <= width - 1 - houseLeft; col++) {
+                boolean loop = row == houseTop || row == houseTop + HOUSE_HEIGHT
+                    || col == houseLeft || col == width - 1 - houseLeft;
+                cells[row * width + col] = loop ? DOT : isHouseWall(col, row) ? WALL : EMPTY;
+            }
+        }
+        cells[(houseTop + 1) * width + mid] = EMPTY;
+
+        // Tunnel through the side borders at the height of the house
+        int tunnelRow = houseTop + 2;
+        for (int col = 0; col < houseLeft && cells[tunnelRow * width + col] == WALL; col++) {
+            carve(cells, col, tunnelRow, EMPTY);
+        }
+
+        int pacmanRow = houseTop + HOUSE_HEIGHT;
+        connectRegions(cells, pacmanRow * width + mid);
+
+        int ghostRow = houseTop + HOUSE_HEIGHT / 2;
+        int[][] ghosts = {{mid, ghostRow}, {mid - 1, ghostRow}, {mid + 1, ghostRow}};
+        int[][] grid = new int[height][];
+        for (int row = 0; row < height; row++) {
+            grid[row] = Arrays.copyOfRange(cells, row * width, (row + 1) * width);
+        }
+        Level level = Level.fromCells(name, grid, mid, pacmanRow, ghosts);
+        List<String> problems = LevelValidator.validate(level);
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Generated an invalid maze (seed " + seed + "): " + problems);
+        }
+        return level;
+    }
+
+    // Depth-first carving over the odd cells of the left half, mirrored
+    private void carveLattice(int[] cells, GameRandom random, int mid) {
+        int cols = (mid + 1) / 2;          // lattice columns 1, 3, ... <= mid
+        int rows = (height - 1) / 2;       // lattice rows 1, 3, ... <= height - 2
+        boolean[] visited = new boolean[cols * rows];
+        int[] stack = new int[cols * rows];
+        int top = 0;
+        int start = random.nextInt(cols * rows);
+        visited[start] = true;
+        stack[top++] = start;
+        carve(cells, 2 * (start % cols) + 1, 2 * (start / cols) + 1, DOT);
+        int[] order = {0, 1, 2, 3};
+        while (top > 0) {
+            int current = stack[top - 1];
+            int cx = current % cols;
+            int cy = current / cols;
+            shuffle(order, random);
+            boolean moved = false;
+            for (int d : order) {
+                int nx = cx + DX[d];
+                int ny = cy + DY[d];
+                if (nx < 0 || nx >= cols || ny < 0 || ny >= rows || visited[ny * cols + nx]) {
+                    continue;
+                }
+                visited[ny * cols + nx] = true;
+                carve(cells, 2 * cx + 1 + DX[d], 2 * cy + 1 + DY[d], DOT);
+                carve(cells, 2 * nx + 1, 2 * ny + 1, DOT);
+                stack[top++] = ny * cols + nx;
+                moved = true;
+                break;
+            }
+            if (!moved) {
+                top--;
+            }
+        }
+        // Join the two halves across the center column on a few rows
+        for (int row = 1; row < height - 1; row += 2) {
+            if (cells[row * width + mid - 1] != WALL && random.nextInt(3) == 0) {
+                carve(cells, mid, row, DOT);
+            }
+        }
+    }
+
+    // Open one more wall from every dead end so corridors form loops
+    private void removeDeadEnds(int[] cells, GameRandom random, int mid) {
+        int[] order = {0, 1, 2, 3};
+        for (int row = 1; row < height - 1; row += 2) {
+            for (int col = 1; col <= mid; col += 2) {
+                if (cells[row * width + col] == WALL || openNeighbors(cells, col, row) != 1) {
+                    continue;
+                }
+                shuffle(order, random);
+                for (int d : order) {
+                    int wallCol = col + DX[d];
+                    int wallRow = row + DY[d];
+                    int beyondCol = col + 2 * DX[d];
+                    int beyondRow = row + 2 * DY[d];
+                    if (beyondCol > 0 && beyondCol < width - 1 && beyondRow > 0 && beyondRow < height - 1
+                        && cells[wallRow * width + wallCol] == WALL
+                        && cells[beyondRow * width + beyondCol] != WALL) {
+                        carve(cells, wallCol, wallRow, DOT);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // Open a wall between the region reachable from the start and each
+    // isolated region; regions that cannot be joined that way are filled in
+    private void connectRegions(int[] cells, int startCell) {
+        boolean[] reached = new boolean[cells.length];
+        int[] queue = new int[cells.length];
+        while (true) {
+            Arrays.fill(reached, false);
+            LevelValidator.flood(cells, width, height, startCell, reached, queue);
+            int bridge = -1;
+            boolean isolated = false;
+            for (int cell = 0; cell < cells.length && bridge < 0; cell++) {
+                if (cells[cell] == WALL || reached[cell]) {
+                    continue;
+                }
+                isolated = true;
+                bridge = findBridge(cells, reached, cell);
+            }
+            if (!isolated) {
+                return;
+            }
+            if (bridge < 0) {
+                for (int cell = 0; cell < cells.length; cell++) {
+                    if (!reached[cell]) {
+                        cells[cell] = WALL;
+                    }
+                }
+                return;
+            }
+            carve(cells, bridge % width, bridge / width, DOT);
+        }
+    }
+
+    // Interior wall next to 'cell' whose other side is in the reached region
+    private int findBridge(int[] cells, boolean[] reached, int cell) {
+        int col = cell % width;
+        int row = cell / width;
+        for (int d = 0; d < 4; d++) {
+            int wallCol = col + DX[d];
+            int wallRow = row + DY[d];
+            int beyondCol = col + 2 * DX[d];
+            int beyondRow = row + 2 * DY[d];
+            if (wallCol <= 0 || wallCol >= width - 1 || wallRow <= 0 || wallRow >= height - 1
+                || beyondCol < 0 || beyondCol >= width || beyondRow < 0 || beyondRow >= height) {
+                continue;
+            }
+            int wall = wallRow * width + wallCol;
+            if (cells[wall] == WALL && reached[beyondRow * width + beyondCol] && !isHouseWall(wallCol, wallRow)) {
+                return wall;
+            }
+        }
+        return -1;
+    }
+
+    // Walls of the room itself (one cell inside the loop), never opened
+    private boolean isHouseWall(int col, int row) {
+        boolean inside = row > houseTop && row < houseTop + HOUSE_HEIGHT
+            && col > houseLeft && col < width - 1 - houseLeft;
+        boolean room = row > houseTop + 1 && row < houseTop + HOUSE_HEIGHT - 1
+            && col > houseLeft + 1 && col < width - 2 - houseLeft;
+        return inside && !room;
+    }
+
+    private int openNeighbors(int[] cells, int col, int row) {
+        int open = 0;
+        for (int d = 0; d < 4; d++) {
+            if (cells[(row + DY[d]) * width + col + DX[d]] != WALL) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    // Set a cell and its mirror image across the center column
+    private void carve(int[] cells, int col, int row, int value) {
+        cells[row * width + col] = value;
+        cells[row * width + width - 1 - col] = value;
+    }
+
+    private static void shuffle(int[] values, GameRandom random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 21;
+        int height = args.length > 2 ? Integer.parseInt(args[2]) : 21;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+        MazeGenerator generator = new MazeGenerator(width, height);
+
+        // generate() validates every level and throws if one is not playable
+        long start = System.nanoTime();
+        List<Level> levels = LongStream.range(0, count)
+            .parallel()
+            .mapToObj(i -> generator.generate(EndlessLevels.levelSeed(seed, i), "Laberinto " + (i + 1)))
+            .collect(Collectors.toList());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d valid %dx%d mazes in %.2f s (%.0f levels/s)%n",
+            count, width, height, seconds, count / seconds);
+
+        if (args.length > 4) {
+            LevelPackCompiler.write(levels, Paths.get(args[4]));
+            System.out.println("Saved to " + args[4]);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Topología de un nivel precalculada al cargarlo: celdas transitables,
+// vecinos (con los túneles de wrapX/wrapY), cruces, pasillos entre cruces y
+// tablas de distancia y siguiente paso entre cualquier par de celdas.
+// Es inmutable y se cachea en su Level, así que las consultas son O(1).
+// Las tablas ocupan nodos² bytes, así que en laberintos muy grandes las
+// distancias se calculan por destino cuando se piden y se guardan en una
+// caché LRU acotada.
+public final class MazeGraph {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte NO_DIRECTION = -1;
+    // Above this many nodes the all-pairs tables would take over 12 MB
+    static final int DENSE_TABLE_LIMIT = 2048;
+    // Memory budget for cached rows of large mazes, in ints
+    private static final int ROW_CACHE_BUDGET = 1 << 23;
+
+    private final int width;
+    private final int height;
+    private final int nodeCount;
+    private final int[] cellToNode;
+    private final int[] nodeToCell;
+    private final int[] neighbors;      // node * 4 + direction -> node, or -1
+    private final boolean[] junctions;
+    private final int[] corridorEnd;    // node * 4 + direction -> next junction along that exit, or -1
+    private final int[] corridorLength;
+    private final short[] distances;    // from * nodeCount + to, -1 if unreachable; null if large
+    private final byte[] nextHops;      // first direction ordinal on a shortest path
+    private final Map<Integer, int[]> rows; // large mazes: target -> distance from every node
+
+    MazeGraph(Level level) {
+        width = level.getWidth();
+        height = level.getHeight();
+        cellToNode = new int[width * height];
+        Arrays.fill(cellToNode, -1);
+        int count = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (!level.isWall(col, row)) {
+                    cellToNode[row * width + col] = count++;
+                }
+            }
+        }
+        nodeCount = count;
+        nodeToCell = new int[nodeCount];
+        for (int cell = 0; cell < cellToNode.length; cell++) {
+            if (cellToNode[cell] >= 0) {
+                nodeToCell[cellToNode[cell]] = cell;
+            }
+        }
+
+        neighbors = new int[nodeCount * 4];
+        for (int node = 0; node < nodeCount; node++) {
+            int col = nodeToCell[node] % width;
+            int row = nodeToCell[node] / width;
+            for (Direction d : DIRECTIONS) {
+                int c = Math.floorMod(col + d.getDx(), width);
+                int r = Math.floorMod(row + d.getDy(), height);
+                neighbors[node * 4 + d.ordinal()] = cellToNode[r * width + c];
+            }
+        }
+
+        junctions = new boolean[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            junctions[node] = isJunctionNode(node);
+        }
+        corridorEnd = new int[nodeCount * 4];
+        corridorLength = new int[nodeCount * 4];
+        buildCorridors();
+
+        if (nodeCount <= DENSE_TABLE_LIMIT) {
+            distances = new short[nodeCount * nodeCount];
+            nextHops = new byte[nodeCount * nodeCount];
+            buildDistanceTables();
+            rows = null;
+        } else {
+            distances = null;
+            nextHops = null;
+            int capacity = Math.max(16, ROW_CACHE_BUDGET / nodeCount);
+            rows = new LinkedHashMap<Integer, int[]>(capacity * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+
+    // A junction is any cell that is not the middle of a straight corridor
+    private boolean isJunctionNode(int node) {
+        int exits = 0;
+        for (int d = 0; d < 4; d++) {
+            if (neighbors[node * 4 + d] >= 0) {
+                exits++;
+            }
+        }
+        if (exits != 2) {
+            return true;
+        }
+        boolean horizontal = neighbors[node * 4 + Direction.LEFT.ordinal()] >= 0
+            && neighbors[node * 4 + Direction.RIGHT.ordinal()] >= 0;
+        boolean vertical = neighbors[node * 4 + Direction.UP.ordinal()] >= 0
+            && neighbors[node * 4 + Direction.DOWN.ordinal()] >= 0;
+        return !horizontal && !vertical;
+    }
+
+    private void buildCorridors() {
+        Arrays.fill(corridorEnd, -1);
+        for (int start = 0; start < nodeCount; start++) {
+            if (!junctions[start]) {
+                continue;
+            }
+            for (int d = 0; d < 4; d++) {
+                int node = neighbors[start * 4 + d];
+                int length = 1;
+                // Corridors only run straight, so keep going in the same direction
+                while (node >= 0 && !junctions[node] && node != start) {
+                    node = neighbors[node * 4 + d];
+                    length++;
+                }
+                if (node >= 0) {
+                    corridorEnd[start * 4 + d] = node;
+                    corridorLength[start * 4 + d] = length;
+                }
+            }
+        }
+    }
+
+    private void buildDistanceTables() {
+        Arrays.fill(distances, (short) -1);
+        Arrays.fill(nextHops, NO_DIRECTION);
+        int[] queue = new int[nodeCount];
+        for (int source = 0; source < nodeCount; source++) {
+            int base = source * nodeCount;
+            distances[base + source] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            while (head < tail) {
+                int node = queue[head++];
+                short next = (short) (distances[base + node] + 1);
+                for (int d = 0; d < 4; d++) {
+                    int neighbor = neighbors[node * 4 + d];
+                    if (neighbor >= 0 && distances[base + neighbor] < 0) {
+                        distances[base + neighbor] = next;
+                        nextHops[base + neighbor] = node == source ? (byte) d : nextHops[base + node];
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+    }
+
+    // Distances from every node to 'target' (the graph is undirected)
+    private int[] row(int target) {
+        int[] row;
+        synchronized (rows) {
+            row = rows.get(target);
+        }
+        if (row == null) {
+            row = new int[nodeCount];
+            Arrays.fill(row, -1);
+            int[] queue = new int[nodeCount];
+            int head = 0;
+            int tail = 0;
+            row[target] = 0;
+            queue[tail++] = target;
+            while (head < tail) {
+                int node = queue[head++];
+                for (int d = 0; d < 4; d++) {
+                    int neighbor = neighbors[node * 4 + d];
+                    if (neighbor >= 0 && row[neighbor] < 0) {
+                        row[neighbor] = row[node] + 1;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            synchronized (rows) {
+                rows.put(target, row);
+            }
+        }
+        return row;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    // Node id of a cell, or -1 for walls and cells outside the level
+    public int node(int col, int row) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return -1;
+        }
+        return cellToNode[row * width + col];
+    }
+
+    public int getCol(int node) {
+        return nodeToCell[node] % width;
+    }
+
+    public int getRow(int node) {
+        return nodeToCell[node] / width;
+    }
+
+    public int neighbor(int node, Direction direction) {
+        return neighbors[node * 4 + direction.ordinal()];
+    }
+
+    public boolean isJunction(int node) {
+        return junctions[node];
+    }
+
+    // Next junction reached by leaving junction 'node' in 'direction', or -1
+    public int corridorEnd(int node, Direction direction) {
+        return corridorEnd[node * 4 + direction.ordinal()];
+    }
+
+    public int corridorLength(int node, Direction direction) {
+        return corridorLength[node * 4 + direction.ordinal()];
+    }
+
+    // Shortest path length in cells, or -1 if unreachable
+    public int distance(int fromNode, int toNode) {
+        if (distances == null) {
+            return row(toNode)[fromNode];
+        }
+        return distances[fromNode * nodeCount + toNode];
+    }
+
+    // First step on a shortest path, or null if already there or unreachable
+    public Direction nextDirection(int fromNode, int toNode) {
+        if (nextHops == null) {
+            // Any neighbour one step closer to the target is on a shortest path
+            int[] row = row(toNode);
+            int distance = row[fromNode];
+            for (int d = 0; distance > 0 && d < 4; d++) {
+                int neighbor = neighbors[fromNode * 4 + d];
+                if (neighbor >= 0 && row[neighbor] == distance - 1) {
+                    return DIRECTIONS[d];
+                }
+            }
+            return null;
+        }
+        byte d = nextHops[fromNode * nodeCount + toNode];
+        return d == NO_DIRECTION ? null : DIRECTIONS[d];
+    }
+
+    public int distance(int fromCol, int fromRow, int toCol, int toRow) {
+        int from = node(fromCol, fromRow);
+        int to = node(toCol, toRow);
+        return from < 0 || to < 0 ? -1 : distance(from, to);
+    }
+
+    public Direction nextDirection(int fromCol, int fromRow, int toCol, int toRow) {
+        int from = node(fromCol, fromRow);
+        int to = node(toCol, toRow);
+        return from < 0 || to < 0 ? null : nextDirection(from, to);
+    }
+}
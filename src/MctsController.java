@@ -0,0 +1,338 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Piloto automático con Monte Carlo Tree Search (UCT) sobre las propias reglas
+// del motor. Cada vez que Pac-Man llega al centro de una celda, varios hilos
+// buscan en paralelo durante el presupuesto de tiempo, cada uno con su propia
+// copia del motor y su propio árbol (paralelización en la raíz, sin estado
+// compartido), y se elige la dirección con más visitas sumando todos los árboles.
+//
+// Una acción es "ir en esta dirección hasta la siguiente celda". Las copias se
+// restauran desde una GameSnapshot de la partida real en cada simulación, así
+// que buscar no asigna memoria salvo el reparto de tareas a los hilos.
+public class MctsController implements PacmanController, AutoCloseable {
+    public static final long DEFAULT_BUDGET_MILLIS = 30;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int ACTIONS = DIRECTIONS.length;
+    private static final int HORIZON = 12; // cells simulated per iteration
+    private static final int MAX_NODES = 1 << 15; // per worker tree
+    private static final double EXPLORATION = 0.7;
+    // Rewards are in [0, 1]: dying scores below surviving, clearing the level is best
+    private static final double DEATH_REWARD = 0.25;
+    private static final double SURVIVAL_REWARD = 0.5;
+    private static final double DOTS_REWARD = 0.35;
+    // Pull towards the closest dot when no rollout reaches one
+    private static final double NEAREST_DOT_REWARD = 0.15;
+
+    private final long budgetNanos;
+    private final ExecutorService pool;
+    private final List<Worker> workers;
+    private final GameSnapshot root = new GameSnapshot();
+    private final long[] visits = new long[ACTIONS];
+    private final double[] totals = new double[ACTIONS];
+    private GameEngine source;
+    private long lastIterations;
+    private long lastTicks;
+
+    public MctsController(GameRandom random) {
+        this(random, DEFAULT_BUDGET_MILLIS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MctsController(GameRandom random, long budgetMillis, int threads) {
+        if (budgetMillis <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("budgetMillis and threads must be positive");
+        }
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        Worker[] created = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            created[i] = new Worker(random.split());
+        }
+        this.workers = Arrays.asList(created);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "mcts-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Direction nextDirection(GameEngine engine) {
+        Pacman pacman = engine.getPacman();
+        int blockSize = GameEngine.BLOCK_SIZE;
+        // Decisions only matter at cell centers; in between Pacman keeps going
+        if (engine.isGameOver() || pacman.getX() % blockSize != 0 || pacman.getY() % blockSize != 0) {
+            return null;
+        }
+        if (engine != source) {
+            for (Worker worker : workers) {
+                worker.engine = engine.fork();
+            }
+            source = engine;
+        }
+        engine.snapshot(root);
+        long deadline = System.nanoTime() + budgetNanos;
+        for (Worker worker : workers) {
+            worker.deadline = deadline;
+        }
+        try {
+            for (Future<Void> done : pool.invokeAll(workers)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("MCTS worker failed", e.getCause());
+        }
+        return bestAction();
+    }
+
+    // Most visited root action over all trees; ties go to the best mean reward
+    private Direction bestAction() {
+        Arrays.fill(visits, 0);
+        Arrays.fill(totals, 0);
+        lastIterations = 0;
+        lastTicks = 0;
+        for (Worker worker : workers) {
+            worker.addRootStats(visits, totals);
+            lastIterations += worker.iterations;
+            lastTicks += worker.ticks;
+        }
+        int best = -1;
+        for (int action = 0; action < ACTIONS; action++) {
+            if (visits[action] == 0) {
+                continue;
+            }
+            if (best < 0 || visits[action] > visits[best] || (visits[action] == visits[best]
+                && totals[action] / visits[action] > totals[best] / visits[best])) {
+                best = action;
+            }
+        }
+        return best < 0 ? null : DIRECTIONS[best];
+    }
+
+    // Simulations run by all workers in the last decision
+    public long getLastIterations() {
+        return lastIterations;
+    }
+
+    // Engine ticks simulated by all workers in the last decision
+    public long getLastTicks() {
+        return lastTicks;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    // One search thread: its own engine copy and its own tree in flat arrays
+    private final class Worker implements Callable<Void> {
+        private final GameRandom random;
+        private final int[] children = new int[MAX_NODES * ACTIONS]; // 0 = not expanded
+        private final int[] nodeVisits = new int[MAX_NODES];
+        private final double[] nodeTotals = new double[MAX_NODES];
+        private final int[] path = new int[HORIZON + 1];
+        private GameEngine engine;
+        private long deadline;
+        private int nodeCount;
+        private long iterations;
+        private long ticks;
+
+        Worker(GameRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public Void call() {
+            nodeCount = 0;
+            newNode();
+            iterations = 0;
+            ticks = 0;
+            do {
+                iterate();
+                iterations++;
+            } while (System.nanoTime() < deadline);
+            return null;
+        }
+
+        private int newNode() {
+            int node = nodeCount++;
+            Arrays.fill(children, node * ACTIONS, node * ACTIONS + ACTIONS, 0);
+            nodeVisits[node] = 0;
+            nodeTotals[node] = 0;
+            return node;
+        }
+
+        private void iterate() {
+            engine.restore(root);
+            int startDots = engine.getRemainingDots();
+            int node = 0;
+            int depth = 0;
+            int pathLength = 0;
+            path[pathLength++] = node;
+            GameStatus status = GameStatus.RUNNING;
+
+            // Selection and expansion: follow UCT until a new node is added
+            while (status == GameStatus.RUNNING && depth < HORIZON && node >= 0) {
+                int legal = legalActions();
+                int action = untriedAction(node, legal);
+                boolean expand = action >= 0;
+                if (!expand) {
+                    action = selectChild(node, legal);
+                }
+                int child = children[node * ACTIONS + action];
+                if (expand) {
+                    child = nodeCount < MAX_NODES ? newNode() : -1;
+                    if (child >= 0) {
+                        children[node * ACTIONS + action] = child;
+                    }
+                }
+                status = apply(action);
+                depth++;
+                node = child;
+                if (node >= 0) {
+                    path[pathLength++] = node;
+                }
+                if (expand) {
+                    break;
+                }
+            }
+
+            // Rollout: random moves, avoiding pointless reversals
+            while (status == GameStatus.RUNNING && depth < HORIZON) {
+                status = apply(rolloutAction());
+                depth++;
+            }
+
+            double reward;
+            if (status == GameStatus.LEVEL_COMPLETE) {
+                reward = 1.0;
+            } else if (status == GameStatus.GAME_OVER) {
+                reward = DEATH_REWARD * depth / HORIZON;
+            } else {
+                int eaten = startDots - engine.getRemainingDots();
+                reward = SURVIVAL_REWARD + DOTS_REWARD * Math.min(1.0, (double) eaten / HORIZON)
+                    + NEAREST_DOT_REWARD * nearestDotCloseness();
+            }
+            for (int i = 0; i < pathLength; i++) {
+                nodeVisits[path[i]]++;
+                nodeTotals[path[i]] += reward;
+            }
+        }
+
+        // Steer towards the next cell center: one tick with the new direction,
+        // then keep going until Pacman is aligned again
+        private GameStatus apply(int action) {
+            int blockSize = GameEngine.BLOCK_SIZE;
+            Pacman pacman = engine.getPacman();
+            GameStatus status = engine.step(DIRECTIONS[action]);
+            ticks++;
+            for (int i = 1; status == GameStatus.RUNNING && i < blockSize / pacman.getSpeed()
+                && (pacman.getX() % blockSize != 0 || pacman.getY() % blockSize != 0); i++) {
+                status = engine.step(null);
+                ticks++;
+            }
+            return status;
+        }
+
+        // 1 when standing next to a dot, falling to 0 a maze width and height away
+        private double nearestDotCloseness() {
+            int from = engine.getPacmanNode();
+            if (from < 0) {
+                return 0;
+            }
+            MazeGraph graph = engine.getMazeGraph();
+            int range = graph.getWidth() + graph.getHeight();
+            int nearest = range;
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                if (engine.getCell(graph.getRow(node), graph.getCol(node)) == Level.DOT) {
+                    // Same value either way; this order reuses one row on large mazes
+                    int distance = graph.distance(node, from);
+                    if (distance >= 0 && distance < nearest) {
+                        nearest = distance;
+                    }
+                }
+            }
+            return 1.0 - (double) nearest / range;
+        }
+
+        // Bit mask of directions leading to a walkable cell
+        private int legalActions() {
+            int node = engine.getPacmanNode();
+            if (node < 0) {
+                return (1 << ACTIONS) - 1;
+            }
+            MazeGraph graph = engine.getMazeGraph();
+            int legal = 0;
+            for (int action = 0; action < ACTIONS; action++) {
+                if (graph.neighbor(node, DIRECTIONS[action]) >= 0) {
+                    legal |= 1 << action;
+                }
+            }
+            return legal == 0 ? (1 << ACTIONS) - 1 : legal;
+        }
+
+        private int untriedAction(int node, int legal) {
+            int start = random.nextInt(ACTIONS);
+            for (int i = 0; i < ACTIONS; i++) {
+                int action = (start + i) & (ACTIONS - 1);
+                if ((legal & (1 << action)) != 0 && children[node * ACTIONS + action] == 0) {
+                    return action;
+                }
+            }
+            return -1;
+        }
+
+        private int selectChild(int node, int legal) {
+            double logVisits = Math.log(nodeVisits[node]);
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int action = 0; action < ACTIONS; action++) {
+                if ((legal & (1 << action)) == 0) {
+                    continue;
+                }
+                int child = children[node * ACTIONS + action];
+                double score = nodeTotals[child] / nodeVisits[child]
+                    + EXPLORATION * Math.sqrt(logVisits / nodeVisits[child]);
+                if (score > bestScore) {
+                    best = action;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        private int rolloutAction() {
+            int legal = legalActions();
+            int forward = legal & ~(1 << engine.getPacman().getDirection().opposite().ordinal());
+            if (forward != 0) {
+                legal = forward;
+            }
+            int pick = random.nextInt(Integer.bitCount(legal));
+            for (int action = 0; action < ACTIONS; action++) {
+                if ((legal & (1 << action)) != 0 && pick-- == 0) {
+                    return action;
+                }
+            }
+            return 0;
+        }
+
+        void addRootStats(long[] visits, double[] totals) {
+            for (int action = 0; action < ACTIONS; action++) {
+                int child = children[action];
+                if (child > 0) {
+                    visits[action] += nodeVisits[child];
+                    totals[action] += nodeTotals[child];
+                }
+            }
+        }
+    }
+}
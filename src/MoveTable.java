@@ -0,0 +1,92 @@
+// Tabla de movimientos de un nivel, calculada una vez y compartida por todas
+// las partidas que lo juegan. Los sprites miden una casilla, así que un actor
+// ocupa una casilla si está alineado o dos (cuatro en zonas abiertas) si está
+// entre casillas. Para cada casilla y dirección la tabla dice si el sprite
+// puede entrar en la casilla vecina, con los túneles ya resueltos, estando
+// alineado en el otro eje o a caballo entre esa fila/columna y la siguiente.
+// Un paso solo consulta la tabla cuando el sprite empieza a ocupar casillas
+// nuevas; el resto del camino está dentro de casillas que ya ocupa. No depende
+// de la velocidad, que puede ser cualquier divisor de BLOCK_SIZE.
+public final class MoveTable {
+    // step() result when the move would overlap a wall
+    public static final long BLOCKED = -1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int STRADDLING = 4;
+    // A constant so the JIT turns x / BLOCK_SIZE into a multiplication
+    private static final int BLOCK_SIZE = GameEngine.BLOCK_SIZE;
+
+    private final int width;
+    private final int height;
+    private final int pixelWidth;
+    private final int pixelHeight;
+    // Per cell: bit d = can enter the neighbour in direction d while aligned
+    // on the other axis; bit 4 + d = can enter it while also covering the next
+    // row (horizontal moves) or column (vertical moves)
+    private final byte[] moves;
+
+    MoveTable(Level level) {
+        this.width = level.getWidth();
+        this.height = level.getHeight();
+        this.pixelWidth = width * BLOCK_SIZE;
+        this.pixelHeight = height * BLOCK_SIZE;
+        moves = new byte[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int bits = 0;
+                for (Direction d : DIRECTIONS) {
+                    int c = Math.floorMod(col + d.getDx(), width);
+                    int r = Math.floorMod(row + d.getDy(), height);
+                    if (level.isWall(c, r)) {
+                        continue;
+                    }
+                    bits |= 1 << d.ordinal();
+                    // The other cell covered when off-center: one row down for
+                    // horizontal moves, one column right for vertical ones
+                    int otherCol = d.getDx() != 0 ? c : (c + 1) % width;
+                    int otherRow = d.getDx() != 0 ? (r + 1) % height : r;
+                    if (!level.isWall(otherCol, otherRow)) {
+                        bits |= 1 << (STRADDLING + d.ordinal());
+                    }
+                }
+                moves[row * width + col] = (byte) bits;
+            }
+        }
+    }
+
+    // Position after a step of 'speed' pixels from (x, y), packed for x() and
+    // y(), or BLOCKED. The position must have come from a start cell and steps
+    // of the same speed since the actor was last aligned on a cell, and speed
+    // must divide the block size; otherwise a step could skip a cell unchecked.
+    public long step(int x, int y, Direction direction, int speed) {
+        int col = x / BLOCK_SIZE;
+        int row = y / BLOCK_SIZE;
+        boolean offX = x != col * BLOCK_SIZE;
+        boolean offY = y != row * BLOCK_SIZE;
+        int bits = moves[row * width + col];
+        int d = direction.ordinal();
+        if (direction.getDx() != 0) {
+            // Already covering the next column: moving stays within it
+            if (!offX && (bits & (1 << (offY ? STRADDLING + d : d))) == 0) {
+                return BLOCKED;
+            }
+            return (long) wrap(x + direction.getDx() * speed, pixelWidth) << 32 | y;
+        }
+        if (!offY && (bits & (1 << (offX ? STRADDLING + d : d))) == 0) {
+            return BLOCKED;
+        }
+        return (long) x << 32 | wrap(y + direction.getDy() * speed, pixelHeight);
+    }
+
+    // A step never goes further than one board size out
+    private static int wrap(int position, int size) {
+        return position < 0 ? position + size : position >= size ? position - size : position;
+    }
+
+    public static int x(long position) {
+        return (int) (position >>> 32);
+    }
+
+    public static int y(long position) {
+        return (int) position;
+    }
+}
@@ -0,0 +1,104 @@
+import java.nio.ByteBuffer;
+
+// Formato de las observaciones de PacmanEnv y VectorEnv, pensado para verlo
+// sin copias como un array (numpy, un tensor...) desde el entrenador:
+//
+//   planos: cinco planos de cols x rows bytes, fila a fila
+//           0 paredes (1), 1 puntos (1), 2 power-ups (PowerUpType.ordinal() + 1),
+//           3 fantasmas (cuántos hay en la casilla), 4 Pac-Man (1)
+//   final:  puntuación (int, en el orden de bytes del buffer), power-up activo
+//           (byte) y relleno hasta múltiplo de 8
+//
+// Los actores ocupan la casilla bajo el centro de su sprite. Un nivel más
+// pequeño que la rejilla se rellena con pared; uno más grande no cabe, así que
+// los entornos rechazan al crearse un origen de niveles con alguno así.
+public final class ObservationLayout {
+    public static final int WALL_PLANE = 0;
+    public static final int DOT_PLANE = 1;
+    public static final int POWER_UP_PLANE = 2;
+    public static final int GHOST_PLANE = 3;
+    public static final int PACMAN_PLANE = 4;
+    public static final int PLANES = 5;
+    private static final int FOOTER_BYTES = 8;
+
+    private final int cols;
+    private final int rows;
+
+    public ObservationLayout(int cols, int rows) {
+        if (cols <= 0 || rows <= 0 || cols > Level.MAX_SIDE || rows > Level.MAX_SIDE) {
+            throw new IllegalArgumentException("Bad observation grid " + cols + "x" + rows);
+        }
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    // Grid that fits every level, e.g. 20x20 for the built-in levels
+    public static ObservationLayout of(LevelSource levels) {
+        int cols = 0;
+        int rows = 0;
+        for (int i = 0; i < checkedLevels(levels); i++) {
+            Level level = levels.getLevel(i);
+            cols = Math.max(cols, level.getWidth());
+            rows = Math.max(rows, level.getHeight());
+        }
+        return new ObservationLayout(cols, rows);
+    }
+
+    // Generated mazes all have the size of the first one
+    private static int checkedLevels(LevelSource levels) {
+        return levels instanceof EndlessLevels ? 1 : levels.getLevelCount();
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getPlaneBytes() {
+        return cols * rows;
+    }
+
+    // Bytes of one observation, a multiple of 8
+    public int getBytes() {
+        return (PLANES * getPlaneBytes() + FOOTER_BYTES + 7) & ~7;
+    }
+
+    public int offset(int plane, int col, int row) {
+        return plane * getPlaneBytes() + row * cols + col;
+    }
+
+    public int getScoreOffset() {
+        return PLANES * getPlaneBytes();
+    }
+
+    public int getPoweredOffset() {
+        return getScoreOffset() + 4;
+    }
+
+    // Reject a source with a level larger than the grid up front, instead
+    // of failing in the middle of a step() once a game reaches it
+    void checkLevels(LevelSource levels) {
+        for (int i = 0; i < checkedLevels(levels); i++) {
+            Level level = levels.getLevel(i);
+            if (level.getWidth() > cols || level.getHeight() > rows) {
+                throw new IllegalArgumentException("Level " + i + " of '" + levels.getName() + "' is "
+                    + level.getWidth() + "x" + level.getHeight() + ", larger than the " + cols + "x" + rows
+                    + " observation grid");
+            }
+        }
+    }
+
+    // Check that 'count' observations fit in 'buffer' from 'base'
+    void checkBuffer(ByteBuffer buffer, int base, long count) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Observations need a direct ByteBuffer");
+        }
+        if (base < 0 || base + count * getBytes() > buffer.capacity()) {
+            throw new IllegalArgumentException("Buffer of " + buffer.capacity() + " bytes has no room for "
+                + count + " observations of " + getBytes() + " bytes at " + base);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Escribe la observación de una partida en su sitio del buffer del llamante
+// (formato en ObservationLayout). El tablero entero solo se escribe al cargar
+// un nivel; en cada paso se borran los puntos comidos y se mueven los actores,
+// unos pocos bytes, sin recorrer los planos.
+final class ObservationWriter {
+    private static final int BLOCK_SIZE = GameEngine.BLOCK_SIZE;
+    private static final int HALF = GameEngine.SPRITE_SIZE / 2;
+
+    private final ObservationLayout layout;
+    private final ByteBuffer buffer;
+    private final int base;
+    private final int pacmanPlane;
+    private final int ghostPlane;
+    private final int powerUpPlane;
+    // Offsets written by the last update, or -1; cleared before the next one
+    private int pacmanCell = -1;
+    private int[] ghostCells = new int[0];
+    private int[] powerUpCells = new int[0];
+
+    ObservationWriter(ObservationLayout layout, ByteBuffer buffer, int base) {
+        layout.checkBuffer(buffer, base, 1);
+        this.layout = layout;
+        this.buffer = buffer;
+        this.base = base;
+        pacmanPlane = base + layout.offset(ObservationLayout.PACMAN_PLANE, 0, 0);
+        ghostPlane = base + layout.offset(ObservationLayout.GHOST_PLANE, 0, 0);
+        powerUpPlane = base + layout.offset(ObservationLayout.POWER_UP_PLANE, 0, 0);
+    }
+
+    // Walls and the level's dots; actors are written by the next update
+    void writeLevel(Level level) {
+        int width = level.getWidth();
+        int height = level.getHeight();
+        int cols = layout.getCols();
+        int rows = layout.getRows();
+        if (width > cols || height > rows) {
+            throw new IllegalStateException("Level " + level.getName() + " is " + width + "x" + height
+                + ", larger than the " + cols + "x" + rows + " observation grid");
+        }
+        int walls = base + layout.offset(ObservationLayout.WALL_PLANE, 0, 0);
+        int dots = base + layout.offset(ObservationLayout.DOT_PLANE, 0, 0);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                boolean inside = col < width && row < height;
+                buffer.put(walls + cell, (byte) (!inside || level.isWall(col, row) ? 1 : 0));
+                buffer.put(dots + cell, (byte) (inside && level.hasDot(col, row) ? 1 : 0));
+            }
+        }
+        for (int plane = ObservationLayout.POWER_UP_PLANE; plane <= ObservationLayout.PACMAN_PLANE; plane++) {
+            int start = base + layout.offset(plane, 0, 0);
+            for (int cell = 0; cell < layout.getPlaneBytes(); cell++) {
+                buffer.put(start + cell, (byte) 0);
+            }
+        }
+        pacmanCell = -1;
+        Arrays.fill(ghostCells, -1);
+        Arrays.fill(powerUpCells, -1);
+    }
+
+    void eatDot(int col, int row) {
+        buffer.put(base + layout.offset(ObservationLayout.DOT_PLANE, col, row), (byte) 0);
+    }
+
+    // Start of an update: take the actors off the board. Ghost cells hold a
+    // count, as several ghosts can share a cell.
+    void clearActors() {
+        if (pacmanCell >= 0) {
+            buffer.put(pacmanPlane + pacmanCell, (byte) 0);
+        }
+        for (int cell : ghostCells) {
+            if (cell >= 0) {
+                buffer.put(ghostPlane + cell, (byte) 0);
+            }
+        }
+        for (int cell : powerUpCells) {
+            if (cell >= 0) {
+                buffer.put(powerUpPlane + cell, (byte) 0);
+            }
+        }
+    }
+
+    void pacman(int x, int y, int width, int height) {
+        pacmanCell = cell(x, y, width, height);
+        buffer.put(pacmanPlane + pacmanCell, (byte) 1);
+    }
+
+    void ghost(int ghost, int x, int y, int width, int height) {
+        int cell = cell(x, y, width, height);
+        ghostCells = ensure(ghostCells, ghost);
+        ghostCells[ghost] = cell;
+        buffer.put(ghostPlane + cell, (byte) (buffer.get(ghostPlane + cell) + 1));
+    }
+
+    void powerUp(int powerUp, boolean active, PowerUpType type, int x, int y, int width, int height) {
+        powerUpCells = ensure(powerUpCells, powerUp);
+        if (!active) {
+            powerUpCells[powerUp] = -1;
+            return;
+        }
+        int cell = cell(x, y, width, height);
+        powerUpCells[powerUp] = cell;
+        buffer.put(powerUpPlane + cell, (byte) (type.ordinal() + 1));
+    }
+
+    void status(int score, boolean powered) {
+        buffer.putInt(base + layout.getScoreOffset(), score);
+        buffer.put(base + layout.getPoweredOffset(), (byte) (powered ? 1 : 0));
+    }
+
+    // Room for actor 'index', which can be added to a game at any time
+    private static int[] ensure(int[] cells, int index) {
+        if (index < cells.length) {
+            return cells;
+        }
+        int length = cells.length;
+        cells = Arrays.copyOf(cells, index + 1);
+        Arrays.fill(cells, length, cells.length, -1);
+        return cells;
+    }
+
+    // Cell under the center of a sprite at (x, y), in a level of width x height cells
+    private int cell(int x, int y, int width, int height) {
+        return center(y, height) * layout.getCols() + center(x, width);
+    }
+
+    private static int center(int position, int cells) {
+        int center = position + HALF;
+        int size = cells * BLOCK_SIZE;
+        return (center >= size ? center - size : center) / BLOCK_SIZE;
+    }
+}
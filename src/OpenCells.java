@@ -0,0 +1,36 @@
+// Casillas transitables de un nivel en orden fila a fila, para elegir una al
+// azar en O(1) en vez de probar casillas hasta dar con una que no sea pared.
+// Es inmutable y se comparte entre todas las partidas del nivel; quien quiera
+// excluir casillas marca sus posiciones (slot) en un array propio.
+public final class OpenCells {
+    private final int[] cells;  // cell index of each open cell
+    private final int[] slots;  // position in 'cells' of each cell, -1 for walls
+
+    OpenCells(Level level) {
+        int width = level.getWidth();
+        slots = new int[width * level.getHeight()];
+        int count = 0;
+        for (int cell = 0; cell < slots.length; cell++) {
+            slots[cell] = level.isWall(cell % width, cell / width) ? -1 : count++;
+        }
+        cells = new int[count];
+        for (int cell = 0; cell < slots.length; cell++) {
+            if (slots[cell] >= 0) {
+                cells[slots[cell]] = cell;
+            }
+        }
+    }
+
+    public int size() {
+        return cells.length;
+    }
+
+    public int cell(int slot) {
+        return cells[slot];
+    }
+
+    // Position of a cell in the list, or -1 if it is a wall
+    public int slot(int cell) {
+        return slots[cell];
+    }
+}
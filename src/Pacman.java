@@ -1,115 +1,114 @@
 import java.awt.*;
-import java.awt.event.*;
 
 public class Pacman {
     private int x, y;
+    private int previousX, previousY;
     private int startX, startY;
     private Direction currentDirection = Direction.LEFT;
     private Direction desiredDirection = Direction.LEFT;
     private int score = 0;
-    private Board board;
+    private GameEngine engine;
+    private GameClock clock;
     private int spriteSize;
     private boolean powered = false;
-    private long powerUpStartTime = 0;
-    private static final long POWER_UP_DURATION = 15000; // 15 seconds in milliseconds
-    private static final long BLINK_START_TIME = 12000; // Start blinking at 12 seconds (last 3 seconds)
+    // Pixels per tick; a new speed waits until Pacman is aligned on a cell
+    private int speed = GameEngine.NORMAL_SPEED;
+    private int nextSpeed = GameEngine.NORMAL_SPEED;
+    private long powerUpStartTick = 0;
+    static final long POWER_UP_DURATION = GameClock.millisToTicks(15000); // 15 seconds in ticks
+    private static final long BLINK_START_TIME = GameClock.millisToTicks(12000); // Start blinking at 12 seconds (last 3 seconds)
+    private static final long BLINK_PERIOD = GameClock.millisToTicks(250);
+    private static final Direction[] DIRECTIONS = Direction.values();
 
-    public Pacman(int x, int y, Board board) {
+    public Pacman(int x, int y, GameEngine engine) {
         this.x = x;
         this.y = y;
+        this.previousX = x;
+        this.previousY = y;
         this.startX = x;
         this.startY = y;
-        this.board = board;
-        this.spriteSize = board.getSpriteSize();
+        this.engine = engine;
+        this.spriteSize = engine.getSpriteSize();
+        this.clock = engine.getClock();
     }
 
     public void draw(Graphics g) {
+        draw(g, 1.0);
+    }
+
+    public void draw(Graphics g, double alpha) {
         // Update power-up state before drawing
         updatePowerUpState();
         
-        Color pacmanColor = Color.YELLOW;
+        int pacmanColor = SpriteAtlas.PACMAN_NORMAL;
         
         if (powered) {
-            long elapsedTime = System.currentTimeMillis() - powerUpStartTime;
+            long elapsedTime = clock.getTicks() - powerUpStartTick;
             
             if (elapsedTime >= BLINK_START_TIME) {
                 // Blink between blue and white in the last 3 seconds
                 // Blink every 250ms
-                if ((elapsedTime / 250) % 2 == 0) {
-                    pacmanColor = Color.BLUE;
+                if ((elapsedTime / BLINK_PERIOD) % 2 == 0) {
+                    pacmanColor = SpriteAtlas.PACMAN_POWERED;
                 } else {
-                    pacmanColor = Color.WHITE;
+                    pacmanColor = SpriteAtlas.PACMAN_BLINK;
                 }
             } else {
                 // Solid blue for the first 12 seconds
-                pacmanColor = Color.BLUE;
+                pacmanColor = SpriteAtlas.PACMAN_POWERED;
             }
         }
         
-        g.setColor(pacmanColor);
-        g.fillArc(x, y, spriteSize, spriteSize, currentDirection.getAngle(), 300);
+        int drawX = GameEngine.interpolate(previousX, x, alpha);
+        int drawY = GameEngine.interpolate(previousY, y, alpha);
+        SpriteAtlas.INSTANCE.drawPacman(g, pacmanColor, currentDirection,
+            SpriteAtlas.mouthFrame(drawX, drawY), drawX, drawY);
     }
 
     public void move() {
         // Update power-up state
         updatePowerUpState();
-        int newX = x;
-        int newY = y;
+        previousX = x;
+        previousY = y;
+        int blockSize = GameEngine.BLOCK_SIZE;
+        if (x % blockSize == 0 && y % blockSize == 0) {
+            speed = nextSpeed;
+        }
+        MoveTable moves = engine.getMoveTable();
         Direction directionToTry = desiredDirection;
-        
+
         // Intentar moverse en la dirección deseada
-        switch (desiredDirection) {
-            case LEFT: newX -= 4; break;
-            case RIGHT: newX += 4; break;
-            case UP: newY -= 4; break;
-            case DOWN: newY += 4; break;
-        }
-        
-        // Apply screen wrapping
-        newX = board.wrapX(newX);
-        newY = board.wrapY(newY);
-        
-        // Verificar si la dirección deseada está bloqueada
-        int edgeOffset = spriteSize - 1;
-        boolean desiredBlocked = board.isWall(newX, newY) || board.isWall(newX + edgeOffset, newY) ||
-            board.isWall(newX, newY + edgeOffset) || board.isWall(newX + edgeOffset, newY + edgeOffset);
-        
+        long next = moves.step(x, y, desiredDirection, speed);
+
         // Si la dirección deseada está bloqueada, intentar continuar en la dirección actual
-        if (desiredBlocked && desiredDirection != currentDirection) {
-            newX = x;
-            newY = y;
+        if (next == MoveTable.BLOCKED && desiredDirection != currentDirection) {
             directionToTry = currentDirection;
-            
-            switch (currentDirection) {
-                case LEFT: newX -= 4; break;
-                case RIGHT: newX += 4; break;
-                case UP: newY -= 4; break;
-                case DOWN: newY += 4; break;
-            }
-            
-            // Apply screen wrapping again for current direction
-            newX = board.wrapX(newX);
-            newY = board.wrapY(newY);
+            next = moves.step(x, y, currentDirection, speed);
         }
-        
-        // Verificar colisión con paredes
-        if (!board.isWall(newX, newY) && !board.isWall(newX + edgeOffset, newY) &&
-            !board.isWall(newX, newY + edgeOffset) && !board.isWall(newX + edgeOffset, newY + edgeOffset)) {
-            x = newX;
-            y = newY;
+
+        if (next != MoveTable.BLOCKED) {
+            x = MoveTable.x(next);
+            y = MoveTable.y(next);
             currentDirection = directionToTry;
             // Comer punto
-            board.eatPoint(x + spriteSize / 2, y + spriteSize / 2);
+            engine.eatPoint(x + spriteSize / 2, y + spriteSize / 2);
         }
     }
 
-    public void keyPressed(KeyEvent e) {
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_LEFT: desiredDirection = Direction.LEFT; break;
-            case KeyEvent.VK_RIGHT: desiredDirection = Direction.RIGHT; break;
-            case KeyEvent.VK_UP: desiredDirection = Direction.UP; break;
-            case KeyEvent.VK_DOWN: desiredDirection = Direction.DOWN; break;
+    // Takes effect the next time Pacman is aligned on a cell; must divide BLOCK_SIZE
+    public void setSpeed(int speed) {
+        if (speed <= 0 || GameEngine.BLOCK_SIZE % speed != 0) {
+            throw new IllegalArgumentException("Speed must divide " + GameEngine.BLOCK_SIZE + ": " + speed);
         }
+        nextSpeed = speed;
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public void setDesiredDirection(Direction direction) {
+        desiredDirection = direction;
     }
 
     public int getScore() {
@@ -120,16 +119,56 @@ public class Pacman {
         score += points;
     }
     
+    // New start cell for the next reset(), e.g. when a level is loaded
+    void setStart(int x, int y) {
+        this.startX = x;
+        this.startY = y;
+    }
+    
     public void reset() {
         this.x = startX;
         this.y = startY;
+        this.previousX = startX;
+        this.previousY = startY;
         this.score = 0;
         this.currentDirection = Direction.LEFT;
         this.desiredDirection = Direction.LEFT;
         this.powered = false;
-        this.powerUpStartTime = 0;
+        this.powerUpStartTick = 0;
     }
     
+    void writeTo(GameSnapshot snapshot) {
+        snapshot.put(x);
+        snapshot.put(y);
+        snapshot.put(previousX);
+        snapshot.put(previousY);
+        snapshot.put(currentDirection.ordinal());
+        snapshot.put(desiredDirection.ordinal());
+        snapshot.put(score);
+        snapshot.putBoolean(powered);
+        snapshot.put(powerUpStartTick);
+        snapshot.put(speed);
+        snapshot.put(nextSpeed);
+    }
+
+    void readFrom(GameSnapshot.Reader in) {
+        x = in.getInt();
+        y = in.getInt();
+        previousX = in.getInt();
+        previousY = in.getInt();
+        currentDirection = DIRECTIONS[in.getInt()];
+        desiredDirection = DIRECTIONS[in.getInt()];
+        score = in.getInt();
+        powered = in.getBoolean();
+        powerUpStartTick = in.get();
+        speed = in.getInt();
+        nextSpeed = in.getInt();
+    }
+    
+    public Direction getDirection() {
+        return currentDirection;
+    }
+
     public int getX() {
         return x;
     }
@@ -144,7 +183,7 @@ public class Pacman {
     
     public void activatePowerUp() {
         powered = true;
-        powerUpStartTime = System.currentTimeMillis();
+        powerUpStartTick = clock.getTicks();
     }
     
     public boolean isPowered() {
@@ -154,7 +193,7 @@ public class Pacman {
     
     private void updatePowerUpState() {
         if (powered) {
-            long elapsedTime = System.currentTimeMillis() - powerUpStartTime;
+            long elapsedTime = clock.getTicks() - powerUpStartTick;
             if (elapsedTime >= POWER_UP_DURATION) {
                 powered = false;
             }
@@ -0,0 +1,5 @@
+// Decide la dirección de Pac-Man en cada tick. Devuelve null para mantener la
+// dirección deseada actual.
+public interface PacmanController {
+    Direction nextDirection(GameEngine engine);
+}
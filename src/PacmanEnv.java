@@ -0,0 +1,116 @@
+import java.nio.ByteBuffer;
+
+// Entorno de aprendizaje por refuerzo sobre GameEngine, con reset()/step() al
+// estilo de Gym. La observación (formato en ObservationLayout) se escribe en
+// un ByteBuffer directo del llamante, sin copias ni objetos por paso: el
+// entrenador la lee tal cual. La recompensa son los puntos ganados en el paso.
+// Para muchas partidas a la vez, VectorEnv.
+public final class PacmanEnv implements GameListener {
+    private final LevelSource levels;
+    private final ObservationLayout layout;
+    private final ObservationWriter writer;
+    private GameEngine engine;
+    private int score;
+    private int reward;
+    private GameStatus status = GameStatus.GAME_OVER;
+    private boolean levelLoaded;
+
+    // Observation grid that fits every level
+    public PacmanEnv(LevelSource levels, ByteBuffer observation) {
+        this(levels, ObservationLayout.of(levels), observation);
+    }
+
+    // The observation goes at the buffer's current position
+    public PacmanEnv(LevelSource levels, ObservationLayout layout, ByteBuffer observation) {
+        this.levels = levels;
+        layout.checkLevels(levels);
+        this.layout = layout;
+        this.writer = new ObservationWriter(layout, observation, observation.position());
+    }
+
+    // Start a new game and write its first observation
+    public void reset(long seed) {
+        engine = new GameEngine(seed, levels);
+        engine.addListener(this);
+        score = 0;
+        reward = 0;
+        status = GameStatus.RUNNING;
+        levelLoaded = true;
+        writeObservation();
+    }
+
+    // Advance one tick; a null action keeps Pacman's direction. After
+    // GAME_OVER the game stays over until reset().
+    public GameStatus step(Direction action) {
+        if (engine == null) {
+            throw new IllegalStateException("reset() must be called before step()");
+        }
+        if (status == GameStatus.GAME_OVER) {
+            reward = 0;
+            return status;
+        }
+        status = engine.step(action);
+        int newScore = engine.getPacman().getScore();
+        reward = reward(score, newScore, status);
+        score = newScore;
+        writeObservation();
+        return status;
+    }
+
+    // Points earned by the last step. The score starts over on each level, so
+    // when a level is cleared it is the last dot plus what came after it.
+    static int reward(int scoreBefore, int scoreAfter, GameStatus status) {
+        return status == GameStatus.LEVEL_COMPLETE ? GameEngine.DOT_POINTS + scoreAfter : scoreAfter - scoreBefore;
+    }
+
+    private void writeObservation() {
+        Level level = levels.getLevel(engine.getCurrentLevel());
+        if (levelLoaded) {
+            writer.writeLevel(level);
+            levelLoaded = false;
+        }
+        int width = level.getWidth();
+        int height = level.getHeight();
+        Pacman pacman = engine.getPacman();
+        writer.clearActors();
+        writer.pacman(pacman.getX(), pacman.getY(), width, height);
+        Ghost[] ghosts = engine.getGhosts();
+        for (int g = 0; g < ghosts.length; g++) {
+            writer.ghost(g, ghosts[g].getX(), ghosts[g].getY(), width, height);
+        }
+        PowerUp[] powerUps = engine.getPowerUps();
+        for (int p = 0; p < powerUps.length; p++) {
+            PowerUp powerUp = powerUps[p];
+            writer.powerUp(p, powerUp.isActive(), powerUp.getType(), powerUp.getX(), powerUp.getY(), width, height);
+        }
+        writer.status(score, pacman.isPowered());
+    }
+
+    @Override
+    public void dotEaten(int col, int row) {
+        writer.eatDot(col, row);
+    }
+
+    // The board is rewritten once the engine has placed the actors
+    @Override
+    public void levelLoaded(int level) {
+        levelLoaded = true;
+    }
+
+    public int getReward() {
+        return reward;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    public ObservationLayout getLayout() {
+        return layout;
+    }
+
+    // The game being played, e.g. to record it; null before reset()
+    public GameEngine getEngine() {
+        return engine;
+    }
+}
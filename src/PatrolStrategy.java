@@ -0,0 +1,66 @@
+// Patrulla una esquina del laberinto y solo sale a por Pac-Man cuando está a
+// más de shyDistance celdas. Con Integer.MAX_VALUE se queda siempre en su esquina,
+// que es lo que usan todos los fantasmas en modo SCATTER.
+public class PatrolStrategy extends TargetingStrategy {
+    public enum Corner {
+        TOP_LEFT, TOP_RIGHT, BOTTOM_LEFT, BOTTOM_RIGHT
+    }
+
+    private final Corner corner;
+    private final int shyDistance;
+    // Strategies can be shared by forked engines on other threads, so the
+    // cache is replaced as a whole instead of updating two fields
+    private volatile CornerCache cache;
+
+    public PatrolStrategy(Corner corner, int shyDistance) {
+        this.corner = corner;
+        this.shyDistance = shyDistance;
+    }
+
+    @Override
+    protected int target(Ghost ghost, GameEngine engine) {
+        MazeGraph graph = engine.getMazeGraph();
+        int pacmanNode = engine.getPacmanNode();
+        int ghostNode = ghost.getNode();
+        if (shyDistance != Integer.MAX_VALUE && pacmanNode >= 0 && ghostNode >= 0
+            && graph.distance(ghostNode, pacmanNode) > shyDistance) {
+            return pacmanNode;
+        }
+        return cornerNode(graph);
+    }
+
+    // Walkable cell closest to the corner, recomputed only when the level changes
+    private int cornerNode(MazeGraph graph) {
+        CornerCache cached = cache;
+        if (cached == null || cached.graph != graph) {
+            cached = new CornerCache(graph, nearestNode(graph, corner));
+            cache = cached;
+        }
+        return cached.node;
+    }
+
+    static int nearestNode(MazeGraph graph, Corner corner) {
+        int cornerCol = corner == Corner.TOP_LEFT || corner == Corner.BOTTOM_LEFT ? 0 : graph.getWidth() - 1;
+        int cornerRow = corner == Corner.TOP_LEFT || corner == Corner.TOP_RIGHT ? 0 : graph.getHeight() - 1;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            int distance = Math.abs(graph.getCol(node) - cornerCol) + Math.abs(graph.getRow(node) - cornerRow);
+            if (distance < bestDistance) {
+                best = node;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static final class CornerCache {
+        final MazeGraph graph;
+        final int node;
+
+        CornerCache(MazeGraph graph, int node) {
+            this.graph = graph;
+            this.node = node;
+        }
+    }
+}
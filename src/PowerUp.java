@@ -1,53 +1,55 @@
 import java.awt.*;
-import java.util.Random;
 
+// Power-up de un tipo (PowerUpType) colocado en una casilla transitable al
+// azar. Al comerlo desaparece y reaparece en otra casilla cuando pasan los
+// ticks de su tipo; el motor elige la casilla (GameEngine.randomSpawnCell).
 public class PowerUp {
+    private static final int BLOCK_SIZE = GameEngine.BLOCK_SIZE;
+    private static final long NO_RESPAWN = -1;
     private int x, y;
     private boolean active;
-    private Board board;
+    private long respawnTick = NO_RESPAWN;
+    private GameEngine engine;
+    private final PowerUpType type;
     private int spriteSize;
-    private static final int BLOCK_SIZE = 20;
-    private static final int BOARD_WIDTH = 20;
-    private static final int BOARD_HEIGHT = 20;
-    private static final int MAX_SPAWN_ATTEMPTS = 100;
-    private Random random = new Random();
+    private GameRandom random;
 
-    public PowerUp(Board board) {
-        this.board = board;
-        this.spriteSize = board.getSpriteSize();
+    public PowerUp(GameEngine engine, GameRandom random, PowerUpType type) {
+        this.engine = engine;
+        this.random = random;
+        this.type = type;
+        this.spriteSize = engine.getSpriteSize();
         this.active = false;
         spawn();
     }
 
+    // Move to a random open cell away from Pacman and the ghosts; always succeeds
     public void spawn() {
-        // Find a random valid position (not a wall)
-        int attempt = 0;
-        boolean validPosition = false;
-        
-        while (!validPosition && attempt < MAX_SPAWN_ATTEMPTS) {
-            // Random position in the board
-            int col = random.nextInt(BOARD_WIDTH);
-            int row = random.nextInt(BOARD_HEIGHT);
-            
-            x = col * BLOCK_SIZE;
-            y = row * BLOCK_SIZE;
-            
-            // Check if it's not a wall
-            if (!board.isWall(x, y)) {
-                validPosition = true;
-                active = true;
-            }
-            attempt++;
+        int cell = engine.randomSpawnCell(random);
+        x = cell % engine.getBoardWidth() * BLOCK_SIZE;
+        y = cell / engine.getBoardWidth() * BLOCK_SIZE;
+        active = true;
+        respawnTick = NO_RESPAWN;
+    }
+
+    // Respawn once the timer set when it was eaten runs out; true if it did
+    boolean update(long ticks) {
+        if (!active && respawnTick != NO_RESPAWN && ticks >= respawnTick) {
+            spawn();
+            return true;
         }
+        return false;
+    }
+
+    // Take it off the board without scheduling a respawn
+    void hide() {
+        active = false;
+        respawnTick = NO_RESPAWN;
     }
 
     public void draw(Graphics g) {
         if (active) {
-            // Draw power-up as a star or special icon
-            g.setColor(Color.GREEN);
-            g.fillOval(x + 5, y + 5, 10, 10);
-            g.setColor(Color.WHITE);
-            g.fillOval(x + 7, y + 7, 6, 6);
+            SpriteAtlas.INSTANCE.drawPowerUp(g, type, x, y);
         }
     }
 
@@ -62,15 +64,44 @@ public class PowerUp {
             pacmanY < y + spriteSize &&
             pacmanY + pacmanSize > y) {
             active = false;
+            respawnTick = engine.getClock().getTicks() + type.getRespawnTicks();
             return true;
         }
         return false;
     }
 
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
     public boolean isActive() {
         return active;
     }
 
+    public PowerUpType getType() {
+        return type;
+    }
+
+    void writeTo(GameSnapshot snapshot) {
+        snapshot.put(x);
+        snapshot.put(y);
+        snapshot.putBoolean(active);
+        snapshot.put(respawnTick);
+        random.writeTo(snapshot);
+    }
+
+    void readFrom(GameSnapshot.Reader in) {
+        x = in.getInt();
+        y = in.getInt();
+        active = in.getBoolean();
+        respawnTick = in.get();
+        random.readFrom(in);
+    }
+
     public void reset() {
         spawn();
     }
@@ -0,0 +1,38 @@
+import java.awt.Color;
+
+// Tipos de power-up: qué dan al comerlos y cuántos ticks tardan en reaparecer
+// en otra casilla.
+public enum PowerUpType {
+    // Ghosts get frightened and cannot catch Pacman for a while
+    POWER(Color.GREEN, 0, true, GameClock.millisToTicks(20000)),
+    // Bonus points, like the fruit of the arcade game
+    FRUIT(Color.RED, 100, false, GameClock.millisToTicks(10000));
+
+    private final Color color;
+    private final int points;
+    private final boolean powersUp;
+    private final long respawnTicks;
+
+    PowerUpType(Color color, int points, boolean powersUp, long respawnTicks) {
+        this.color = color;
+        this.points = points;
+        this.powersUp = powersUp;
+        this.respawnTicks = respawnTicks;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public boolean powersUp() {
+        return powersUp;
+    }
+
+    public long getRespawnTicks() {
+        return respawnTicks;
+    }
+}
@@ -0,0 +1,18 @@
+// Controlador aleatorio para simulaciones: cambia de dirección al azar de vez en cuando
+public class RandomController implements PacmanController {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int TURN_CHANCE = 8; // 1 in 8 ticks
+    private final GameRandom random;
+
+    public RandomController(GameRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public Direction nextDirection(GameEngine engine) {
+        if (random.nextInt(TURN_CHANCE) == 0) {
+            return DIRECTIONS[random.nextInt(4)];
+        }
+        return null;
+    }
+}
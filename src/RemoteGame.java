@@ -0,0 +1,238 @@
+import java.nio.ByteBuffer;
+
+// Copia de una partida de GameServer en el cliente, reconstruida a partir de
+// los mensajes KEYFRAME y DELTA (formato en GameProtocol). Un espectador solo
+// necesita esto para dibujar la partida; no ejecuta ninguna regla del juego.
+public final class RemoteGame {
+    private static final GameStatus[] STATUSES = GameStatus.values();
+    private static final GhostMode[] MODES = GhostMode.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final PowerUpType[] POWER_UP_TYPES = PowerUpType.values();
+
+    private boolean synced;
+    private long tick;
+    private int level;
+    private int width;
+    private int height;
+    private GameStatus status;
+    private GhostMode mode;
+    private int score;
+    private boolean powered;
+    private Direction pacmanDirection;
+    // Actor 0 is Pacman, then the ghosts
+    private int[] actorX = new int[0];
+    private int[] actorY = new int[0];
+    private boolean[] powerUpActive = new boolean[0];
+    private PowerUpType[] powerUpTypes = new PowerUpType[0];
+    private int[] powerUpX = new int[0];
+    private int[] powerUpY = new int[0];
+    private long[] dots = new long[0];
+    private int remainingDots;
+
+    // Apply one server message; 'payload' holds exactly the bytes after the
+    // header and is consumed. Returns false for a DELTA received before any
+    // keyframe, which cannot be applied.
+    public boolean apply(byte type, ByteBuffer payload) {
+        if (type == GameProtocol.KEYFRAME) {
+            applyKeyframe(payload);
+            return true;
+        }
+        if (type == GameProtocol.DELTA) {
+            if (!synced) {
+                payload.position(payload.limit());
+                return false;
+            }
+            applyDelta(payload);
+            return true;
+        }
+        payload.position(payload.limit());
+        return true;
+    }
+
+    private void applyKeyframe(ByteBuffer in) {
+        tick = in.getLong();
+        level = in.getInt();
+        width = in.getInt();
+        height = in.getInt();
+        status = STATUSES[in.get()];
+        mode = MODES[in.get()];
+        score = in.getInt();
+        powered = in.get() != 0;
+        int pacmanX = in.getInt();
+        int pacmanY = in.getInt();
+        pacmanDirection = DIRECTIONS[in.get()];
+        int ghosts = in.get();
+        if (actorX.length != ghosts + 1) {
+            actorX = new int[ghosts + 1];
+            actorY = new int[ghosts + 1];
+        }
+        actorX[0] = pacmanX;
+        actorY[0] = pacmanY;
+        for (int g = 1; g <= ghosts; g++) {
+            actorX[g] = in.getInt();
+            actorY[g] = in.getInt();
+        }
+        int powerUps = in.get();
+        if (powerUpActive.length != powerUps) {
+            powerUpActive = new boolean[powerUps];
+            powerUpTypes = new PowerUpType[powerUps];
+            powerUpX = new int[powerUps];
+            powerUpY = new int[powerUps];
+        }
+        for (int p = 0; p < powerUps; p++) {
+            powerUpActive[p] = in.get() != 0;
+            powerUpTypes[p] = POWER_UP_TYPES[in.get()];
+            powerUpX[p] = in.getInt();
+            powerUpY[p] = in.getInt();
+        }
+        int cells = width * height;
+        if (dots.length != (cells + 63) / 64) {
+            dots = new long[(cells + 63) / 64];
+        }
+        remainingDots = 0;
+        for (int cell = 0; cell < cells; cell += 8) {
+            long bits = in.get() & 0xff;
+            dots[cell >>> 6] = (cell & 63) == 0 ? bits : dots[cell >>> 6] | bits << (cell & 63);
+            remainingDots += Long.bitCount(bits);
+        }
+        synced = true;
+    }
+
+    private void applyDelta(ByteBuffer in) {
+        tick = in.getLong();
+        status = STATUSES[in.get()];
+        int flags = in.get();
+        if ((flags & GameProtocol.SCORE_CHANGED) != 0) {
+            score = in.getInt();
+        }
+        if ((flags & GameProtocol.POWERED_CHANGED) != 0) {
+            powered = in.get() != 0;
+        }
+        if ((flags & GameProtocol.MODE_CHANGED) != 0) {
+            mode = MODES[in.get()];
+        }
+        if ((flags & GameProtocol.DIRECTION_CHANGED) != 0) {
+            pacmanDirection = DIRECTIONS[in.get()];
+        }
+        int moved = in.get() & 0xff;
+        for (int i = 0; i < moved; i++) {
+            int id = in.get() & 0xff;
+            int actor = id & ~GameProtocol.ABSOLUTE;
+            if ((id & GameProtocol.ABSOLUTE) != 0) {
+                actorX[actor] = in.getInt();
+                actorY[actor] = in.getInt();
+            } else {
+                actorX[actor] += in.get();
+                actorY[actor] += in.get();
+            }
+        }
+        int changed = in.get() & 0xff;
+        for (int i = 0; i < changed; i++) {
+            int p = in.get();
+            powerUpActive[p] = in.get() != 0;
+            if (powerUpActive[p]) {
+                powerUpX[p] = in.getInt();
+                powerUpY[p] = in.getInt();
+            }
+        }
+        int eaten = in.getShort() & 0xffff;
+        for (int i = 0; i < eaten; i++) {
+            int cell = in.getInt();
+            long mask = 1L << cell;
+            if ((dots[cell >>> 6] & mask) != 0) {
+                dots[cell >>> 6] &= ~mask;
+                remainingDots--;
+            }
+        }
+    }
+
+    // False until the first keyframe
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    public GhostMode getGhostMode() {
+        return mode;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isPowered() {
+        return powered;
+    }
+
+    public int getPacmanX() {
+        return actorX[0];
+    }
+
+    public int getPacmanY() {
+        return actorY[0];
+    }
+
+    public Direction getPacmanDirection() {
+        return pacmanDirection;
+    }
+
+    public int getGhostCount() {
+        return actorX.length - 1;
+    }
+
+    public int getGhostX(int ghost) {
+        return actorX[ghost + 1];
+    }
+
+    public int getGhostY(int ghost) {
+        return actorY[ghost + 1];
+    }
+
+    public int getPowerUpCount() {
+        return powerUpActive.length;
+    }
+
+    public boolean isPowerUpActive(int powerUp) {
+        return powerUpActive[powerUp];
+    }
+
+    public PowerUpType getPowerUpType(int powerUp) {
+        return powerUpTypes[powerUp];
+    }
+
+    public int getPowerUpX(int powerUp) {
+        return powerUpX[powerUp];
+    }
+
+    public int getPowerUpY(int powerUp) {
+        return powerUpY[powerUp];
+    }
+
+    public boolean hasDot(int col, int row) {
+        int cell = row * width + col;
+        return (dots[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    public int getRemainingDots() {
+        return remainingDots;
+    }
+}
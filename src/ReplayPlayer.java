@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Reproduce una partida grabada por ReplayRecorder volviendo a simularla sin
+// interfaz gráfica a máxima velocidad. Cada SNAPSHOT_INTERVAL ticks guarda una
+// copia del estado, así que saltar hacia atrás (o a un tick ya visitado) solo
+// re-simula desde la copia más cercana.
+//
+// Uso: java -cp bin ReplayPlayer <fichero o directorio>...
+// Re-simula cada partida y comprueba que el resultado coincide con el grabado.
+public class ReplayPlayer {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 500;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Level packs opened so far, shared by every replay that uses them
+    private static final Map<String, LevelSource> PACKS = new ConcurrentHashMap<>();
+
+    private final long seed;
+    private final int level;
+    private final LevelSource levels;
+    private final long[] eventSteps;
+    private final Direction[] eventInputs;
+    private final long length;
+    private final boolean finished;
+    private final int recordedScore;
+    private final int recordedLevelsCompleted;
+    private final boolean recordedGameOver;
+    private final long recordedStateHash;
+    private final int snapshotInterval;
+    private final GameEngine engine;
+    // snapshots.get(k) is the state after k * snapshotInterval steps, and
+    // snapshotHashes.get(k) the running state hash at that point
+    private final List<GameSnapshot> snapshots = new ArrayList<>();
+    private final List<Long> snapshotHashes = new ArrayList<>();
+    private long stateHash;
+    private long step = 0;
+    private int nextEvent = 0;
+
+    public ReplayPlayer(Path file) throws IOException {
+        this(file, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public ReplayPlayer(Path file, int snapshotInterval) throws IOException {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("snapshotInterval must be positive");
+        }
+        this.snapshotInterval = snapshotInterval;
+        ByteBuffer in = read(file);
+        try {
+            if (in.getInt() != ReplayRecorder.MAGIC) {
+                throw new IOException(file + " is not a replay file");
+            }
+            byte version = in.get();
+            // Older versions were recorded under other game rules and no longer replay
+            if (version != ReplayRecorder.VERSION) {
+                throw new IOException(file + ": unsupported replay version " + version);
+            }
+            seed = in.getLong();
+            level = (int) getVarint(in);
+            byte[] name = new byte[(int) getVarint(in)];
+            in.get(name);
+            String pack = new String(name, StandardCharsets.UTF_8);
+            levels = levelSource(pack);
+
+            long[] steps = new long[64];
+            Direction[] inputs = new Direction[64];
+            int count = 0;
+            long at = 0;
+            boolean ended = false;
+            while (in.hasRemaining()) {
+                long event = getVarint(in);
+                at += event >>> ReplayRecorder.CODE_BITS;
+                int code = (int) (event & ((1 << ReplayRecorder.CODE_BITS) - 1));
+                if (code == ReplayRecorder.END) {
+                    ended = true;
+                    break;
+                }
+                if (code >= DIRECTIONS.length) {
+                    throw new IOException(file + ": bad event code " + code);
+                }
+                if (count == steps.length) {
+                    steps = Arrays.copyOf(steps, count * 2);
+                    inputs = Arrays.copyOf(inputs, count * 2);
+                }
+                steps[count] = at;
+                inputs[count] = DIRECTIONS[code];
+                count++;
+            }
+            eventSteps = Arrays.copyOf(steps, count);
+            eventInputs = Arrays.copyOf(inputs, count);
+            // A recording cut short (e.g. a crash) plays up to its last input
+            length = ended ? at : (count > 0 ? steps[count - 1] + 1 : 0);
+            finished = ended;
+            recordedScore = ended ? (int) getVarint(in) : -1;
+            recordedLevelsCompleted = ended ? (int) getVarint(in) : -1;
+            recordedGameOver = ended && in.get() != 0;
+            recordedStateHash = ended ? getVarint(in) : 0;
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+
+        engine = createEngine(seed, levels, level);
+        snapshots.add(engine.snapshot());
+        snapshotHashes.add(stateHash);
+    }
+
+    // Engine in the state a recording of (seed, level) starts from
+    public static GameEngine createEngine(long seed, LevelSource levels, int level) {
+        GameEngine engine = new GameEngine(seed, levels);
+        if (level != 0) {
+            engine.startLevel(level);
+        }
+        return engine;
+    }
+
+    private static LevelSource levelSource(String pack) throws IOException {
+        if (pack.isEmpty()) {
+            return BuiltInLevels.INSTANCE;
+        }
+        try {
+            return PACKS.computeIfAbsent(pack, name -> {
+                try {
+                    return LevelSource.open(name);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public GameStatus step() {
+        Direction input = null;
+        if (nextEvent < eventSteps.length && eventSteps[nextEvent] == step) {
+            input = eventInputs[nextEvent++];
+        }
+        long ticks = engine.getClock().getTicks();
+        GameStatus status = engine.step(input);
+        if (engine.getClock().getTicks() != ticks) {
+            stateHash = ReplayRecorder.stateHash(stateHash, engine);
+        }
+        step++;
+        if (step % snapshotInterval == 0 && step / snapshotInterval == snapshots.size()) {
+            snapshots.add(engine.snapshot());
+            snapshotHashes.add(stateHash);
+        }
+        return status;
+    }
+
+    // Move to the given step (clamped to the recording), forwards or backwards
+    public void seek(long target) {
+        target = Math.max(0, Math.min(target, length));
+        int nearest = (int) Math.min(target / snapshotInterval, snapshots.size() - 1);
+        long snapshotStep = (long) nearest * snapshotInterval;
+        if (target < step || snapshotStep > step) {
+            engine.restore(snapshots.get(nearest));
+            stateHash = snapshotHashes.get(nearest);
+            step = snapshotStep;
+            nextEvent = firstEventAtOrAfter(step);
+        }
+        while (step < target) {
+            step();
+        }
+    }
+
+    public void playToEnd() {
+        seek(length);
+    }
+
+    // True if the re-simulated outcome and the state after every tick match
+    // the ones stored in the file
+    public boolean matchesRecording() {
+        return finished
+            && engine.getPacman().getScore() == recordedScore
+            && engine.getLevelsCompleted() == recordedLevelsCompleted
+            && engine.isGameOver() == recordedGameOver
+            && stateHash == recordedStateHash;
+    }
+
+    private int firstEventAtOrAfter(long target) {
+        int index = Arrays.binarySearch(eventSteps, target);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // Events are at distinct steps, so this is the only match
+        return index;
+    }
+
+    private static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static long getVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    public long getStep() {
+        return step;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java ReplayPlayer <file or directory>...");
+            System.exit(2);
+        }
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> entries = Files.list(path)) {
+                    files.addAll(entries.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        long start = System.nanoTime();
+        List<String> failures = files.parallelStream()
+            .map(ReplayPlayer::verify)
+            .filter(failure -> failure != null)
+            .collect(Collectors.toList());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        failures.forEach(System.out::println);
+        System.out.printf("%d replays, %d mismatches (%.1f s)%n", files.size(), failures.size(), seconds);
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    // Replay one file; returns a description of the mismatch or null
+    private static String verify(Path file) {
+        try {
+            ReplayPlayer player = new ReplayPlayer(file);
+            player.playToEnd();
+            if (player.matchesRecording()) {
+                return null;
+            }
+            GameEngine engine = player.getEngine();
+            return String.format("%s: replayed score=%d levels=%d gameOver=%b after %d ticks%s",
+                file, engine.getPacman().getScore(), engine.getLevelsCompleted(), engine.isGameOver(),
+                player.getStep(), player.isFinished()
+                    ? String.format(", recorded score=%d levels=%d gameOver=%b, states %s",
+                        player.recordedScore, player.recordedLevelsCompleted, player.recordedGameOver,
+                        player.stateHash == player.recordedStateHash ? "match" : "differ")
+                    : " (recording has no end marker)");
+        } catch (IOException e) {
+            return file + ": " + e.getMessage();
+        }
+    }
+}
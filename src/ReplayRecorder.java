@@ -0,0 +1,166 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Graba una partida en formato binario compacto. Con la semilla, los niveles y
+// el nivel inicial la partida es determinista, así que basta con guardar los
+// cambios de dirección de Pac-Man y en qué tick ocurren:
+//
+//   cabecera: magic "PMRP" (int), versión (byte), semilla (long), nivel (varint),
+//             pack de niveles (varint longitud + UTF-8, vacío = niveles integrados)
+//   eventos:  varint (ticks desde el evento anterior << 3 | código)
+//             código 0-3 = Direction.ordinal(), 4 = fin de la partida
+//   final:    puntuación (varint), niveles completados (varint), game over (byte),
+//             hash del estado (varint): GameEngine.stateDigest() tras cada tick,
+//             encadenado con stateHash()
+//
+// Un cambio de dirección suele ocupar un solo byte. La versión también sube
+// cuando cambian las reglas del juego, porque las grabaciones antiguas ya no se
+// pueden reproducir (3: power-ups con tipos y reaparición; 4: velocidades
+// por actor, fantasmas asustados más lentos y Pac-Man más rápido tras 3 niveles;
+// 5: hash del estado tick a tick).
+public class ReplayRecorder implements Closeable, GameListener {
+    static final int MAGIC = 0x504d5250;
+    static final byte VERSION = 5;
+    static final int END = 4;
+    static final int CODE_BITS = 3;
+    // Written to disk at least this often, so a game cut short by a crash
+    // still plays back up to about a second before it
+    private static final long FLUSH_STEPS = GameClock.millisToTicks(1000);
+
+    private final FileChannel channel;
+    private final GameEngine engine;
+    private final GameClock clock;
+    private final long startTicks;
+    private long stateHash;
+    private long hashedTicks;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+    private long step = 0;
+    private long lastEventStep = 0;
+    private Direction lastInput;
+    private boolean levelLoaded = false;
+    private boolean finished = false;
+
+    // Start recording a game that has not been stepped yet
+    public ReplayRecorder(Path file, GameEngine engine) throws IOException {
+        byte[] levels = engine.getLevelSource().getName().getBytes(StandardCharsets.UTF_8);
+        if (levels.length > buffer.capacity() / 2) {
+            throw new IOException("Level pack path too long: " + engine.getLevelSource().getName());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(engine.getSeed());
+        putVarint(engine.getCurrentLevel());
+        putVarint(levels.length);
+        buffer.put(levels);
+        this.engine = engine;
+        clock = engine.getClock();
+        startTicks = clock.getTicks();
+        hashedTicks = startTicks;
+        engine.addListener(this);
+    }
+
+    // Call once per engine step with the input passed to GameEngine.step(),
+    // either just before or just after that step; only inputs that change
+    // the direction are written
+    public void record(Direction input) throws IOException {
+        // A new level puts Pac-Man back facing left, so the first input after
+        // it must be written even if it repeats the last one. Recorded before
+        // the step, that input comes right after a load seen in the previous
+        // step; recorded after it, the load came after this input was applied.
+        boolean stepped = clock.getTicks() - startTicks > step;
+        hashState();
+        if (levelLoaded && !stepped) {
+            lastInput = null;
+            levelLoaded = false;
+        }
+        if (input != null && input != lastInput) {
+            writeEvent(input.ordinal());
+            lastInput = input;
+        }
+        if (levelLoaded) {
+            lastInput = null;
+            levelLoaded = false;
+        }
+        step++;
+        if (step % FLUSH_STEPS == 0) {
+            flush();
+        }
+    }
+
+    private void hashState() {
+        if (clock.getTicks() != hashedTicks) {
+            stateHash = stateHash(stateHash, engine);
+            hashedTicks = clock.getTicks();
+        }
+    }
+
+    // Fold the state after one more engine tick into a running hash. The
+    // recorder folds it on the first call after the tick, whichever side of
+    // step() record() is called on, and ReplayPlayer after each step.
+    static long stateHash(long hash, GameEngine engine) {
+        return GameEngine.mixHash(hash, engine.stateDigest());
+    }
+
+    @Override
+    public void levelLoaded(int level) {
+        levelLoaded = true;
+    }
+
+    // Write the end marker and the outcome so playback can verify it
+    public void finish(GameEngine engine) throws IOException {
+        if (finished) {
+            return;
+        }
+        writeEvent(END);
+        putVarint(engine.getPacman().getScore());
+        putVarint(engine.getLevelsCompleted());
+        buffer.put((byte) (engine.isGameOver() ? 1 : 0));
+        hashState();
+        putVarint(stateHash);
+        finished = true;
+    }
+
+    public long getSteps() {
+        return step;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeEvent(int code) throws IOException {
+        putVarint((step - lastEventStep) << CODE_BITS | code);
+        lastEventStep = step;
+    }
+
+    private void putVarint(long value) throws IOException {
+        if (buffer.remaining() < 10) {
+            flush();
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
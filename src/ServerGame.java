@@ -0,0 +1,289 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Una partida alojada en GameServer. Tras cada tick codifica una sola vez el
+// mensaje para todos sus clientes: un DELTA con lo que cambió respecto al tick
+// anterior, o un KEYFRAME si se cargó un nivel. Los puntos comidos llegan por
+// GameListener.dotEaten, así que no se recorre el tablero. Al terminar la
+// partida empieza otra.
+final class ServerGame implements GameListener {
+    private static final int INITIAL_FRAME_SIZE = 256;
+
+    private final int index;
+    private final GameEngine engine;
+    private Direction input;
+    private GameStatus status = GameStatus.RUNNING;
+
+    // Events of the current tick
+    private int[] eaten = new int[8];
+    private int eatenCount;
+    private boolean levelLoaded;
+
+    // State as of the last message, which every client in sync has seen
+    private int sentScore;
+    private boolean sentPowered;
+    private GhostMode sentMode;
+    private Direction sentDirection;
+    private final int[] sentX;
+    private final int[] sentY;
+    private final boolean[] sentActive;
+    private final int[] sentPowerUpX;
+    private final int[] sentPowerUpY;
+
+    private ByteBuffer frame = ByteBuffer.allocate(INITIAL_FRAME_SIZE);
+    private boolean frameIsKeyframe;
+    private ByteBuffer keyframe = ByteBuffer.allocate(INITIAL_FRAME_SIZE);
+    private long keyframeTick = -1;
+
+    ServerGame(int index, long seed, LevelSource levels) {
+        this.index = index;
+        engine = new GameEngine(seed, levels);
+        engine.addListener(this);
+        int actors = 1 + engine.getGhosts().length;
+        sentX = new int[actors];
+        sentY = new int[actors];
+        int powerUps = engine.getPowerUps().length;
+        sentActive = new boolean[powerUps];
+        sentPowerUpX = new int[powerUps];
+        sentPowerUpY = new int[powerUps];
+        remember();
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    GameEngine getEngine() {
+        return engine;
+    }
+
+    // Applied by the next tick(); GameEngine keeps it as the desired direction
+    void setInput(Direction input) {
+        this.input = input;
+    }
+
+    // Advance one tick and encode its message; after a game over a new game
+    // starts and the next message is a keyframe
+    GameStatus tick() {
+        if (status == GameStatus.GAME_OVER) {
+            engine.restart();
+        }
+        eatenCount = 0;
+        status = engine.step(input);
+        input = null;
+        frame.clear();
+        if (levelLoaded) {
+            frame = encodeKeyframe(frame);
+            frameIsKeyframe = true;
+            levelLoaded = false;
+        } else {
+            encodeDelta();
+            frameIsKeyframe = false;
+        }
+        frame.flip();
+        remember();
+        return status;
+    }
+
+    // Message of the last tick, ready to read; callers must not change it
+    ByteBuffer getFrame() {
+        return frame;
+    }
+
+    boolean isKeyframe() {
+        return frameIsKeyframe;
+    }
+
+    // Keyframe of the current state, encoded at most once per tick
+    ByteBuffer getKeyframe() {
+        long tick = engine.getClock().getTicks();
+        if (tick != keyframeTick) {
+            keyframe.clear();
+            keyframe = encodeKeyframe(keyframe);
+            keyframe.flip();
+            keyframeTick = tick;
+        }
+        return keyframe;
+    }
+
+    @Override
+    public void dotEaten(int col, int row) {
+        if (eatenCount == eaten.length) {
+            eaten = Arrays.copyOf(eaten, eatenCount * 2);
+        }
+        eaten[eatenCount++] = row * engine.getBoardWidth() + col;
+    }
+
+    @Override
+    public void levelLoaded(int level) {
+        levelLoaded = true;
+    }
+
+    private ByteBuffer encodeKeyframe(ByteBuffer out) {
+        Level level = engine.getLevelSource().getLevel(engine.getCurrentLevel());
+        int width = level.getWidth();
+        int height = level.getHeight();
+        Ghost[] ghosts = engine.getGhosts();
+        PowerUp[] powerUps = engine.getPowerUps();
+        int size = GameProtocol.HEADER_SIZE + 8 + 12 + 2 + 4 + 1 + 9 + 1 + 8 * ghosts.length + 1
+            + 10 * powerUps.length + (width * height + 7) / 8;
+        if (out.capacity() < size) {
+            out = ByteBuffer.allocate(size);
+        }
+        Pacman pacman = engine.getPacman();
+        out.put(GameProtocol.KEYFRAME);
+        out.putInt(size - GameProtocol.HEADER_SIZE);
+        out.putLong(engine.getClock().getTicks());
+        out.putInt(engine.getCurrentLevel());
+        out.putInt(width);
+        out.putInt(height);
+        out.put((byte) status.ordinal());
+        out.put((byte) engine.getGhostMode().ordinal());
+        out.putInt(pacman.getScore());
+        out.put((byte) (pacman.isPowered() ? 1 : 0));
+        out.putInt(pacman.getX());
+        out.putInt(pacman.getY());
+        out.put((byte) pacman.getDirection().ordinal());
+        out.put((byte) ghosts.length);
+        for (Ghost ghost : ghosts) {
+            out.putInt(ghost.getX());
+            out.putInt(ghost.getY());
+        }
+        out.put((byte) powerUps.length);
+        for (PowerUp powerUp : powerUps) {
+            out.put((byte) (powerUp.isActive() ? 1 : 0));
+            out.put((byte) powerUp.getType().ordinal());
+            out.putInt(powerUp.getX());
+            out.putInt(powerUp.getY());
+        }
+        // Dot bitmap, row by row, lowest bit first
+        int bits = 0;
+        int count = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (engine.getCell(row, col) == Level.DOT) {
+                    bits |= 1 << count;
+                }
+                if (++count == 8) {
+                    out.put((byte) bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0) {
+            out.put((byte) bits);
+        }
+        return out;
+    }
+
+    private void encodeDelta() {
+        Pacman pacman = engine.getPacman();
+        Ghost[] ghosts = engine.getGhosts();
+        PowerUp[] powerUps = engine.getPowerUps();
+        int size = GameProtocol.HEADER_SIZE + 8 + 2 + 7 + 1 + 9 * (1 + ghosts.length) + 1 + 10 * powerUps.length
+            + 2 + 4 * eatenCount;
+        if (frame.capacity() < size) {
+            frame = ByteBuffer.allocate(size);
+        }
+        ByteBuffer out = frame;
+        out.put(GameProtocol.DELTA);
+        int lengthAt = out.position();
+        out.putInt(0);
+        out.putLong(engine.getClock().getTicks());
+        out.put((byte) status.ordinal());
+
+        int flags = 0;
+        flags |= pacman.getScore() != sentScore ? GameProtocol.SCORE_CHANGED : 0;
+        flags |= pacman.isPowered() != sentPowered ? GameProtocol.POWERED_CHANGED : 0;
+        flags |= engine.getGhostMode() != sentMode ? GameProtocol.MODE_CHANGED : 0;
+        flags |= pacman.getDirection() != sentDirection ? GameProtocol.DIRECTION_CHANGED : 0;
+        out.put((byte) flags);
+        if ((flags & GameProtocol.SCORE_CHANGED) != 0) {
+            out.putInt(pacman.getScore());
+        }
+        if ((flags & GameProtocol.POWERED_CHANGED) != 0) {
+            out.put((byte) (pacman.isPowered() ? 1 : 0));
+        }
+        if ((flags & GameProtocol.MODE_CHANGED) != 0) {
+            out.put((byte) engine.getGhostMode().ordinal());
+        }
+        if ((flags & GameProtocol.DIRECTION_CHANGED) != 0) {
+            out.put((byte) pacman.getDirection().ordinal());
+        }
+
+        int movedAt = out.position();
+        out.put((byte) 0);
+        int moved = putMove(out, 0, pacman.getX(), pacman.getY());
+        for (int g = 0; g < ghosts.length; g++) {
+            moved += putMove(out, g + 1, ghosts[g].getX(), ghosts[g].getY());
+        }
+        out.put(movedAt, (byte) moved);
+
+        int changedAt = out.position();
+        out.put((byte) 0);
+        int changed = 0;
+        for (int p = 0; p < powerUps.length; p++) {
+            PowerUp powerUp = powerUps[p];
+            boolean active = powerUp.isActive();
+            if (active == sentActive[p]
+                && (!active || powerUp.getX() == sentPowerUpX[p] && powerUp.getY() == sentPowerUpY[p])) {
+                continue;
+            }
+            out.put((byte) p);
+            out.put((byte) (active ? 1 : 0));
+            if (active) {
+                out.putInt(powerUp.getX());
+                out.putInt(powerUp.getY());
+            }
+            changed++;
+        }
+        out.put(changedAt, (byte) changed);
+
+        out.putShort((short) eatenCount);
+        for (int i = 0; i < eatenCount; i++) {
+            out.putInt(eaten[i]);
+        }
+        out.putInt(lengthAt, out.position() - lengthAt - 4);
+    }
+
+    // Offsets fit in a byte except after a tunnel wrap or a reset
+    private int putMove(ByteBuffer out, int actor, int x, int y) {
+        int dx = x - sentX[actor];
+        int dy = y - sentY[actor];
+        if (dx == 0 && dy == 0) {
+            return 0;
+        }
+        if (dx >= Byte.MIN_VALUE && dx <= Byte.MAX_VALUE && dy >= Byte.MIN_VALUE && dy <= Byte.MAX_VALUE) {
+            out.put((byte) actor);
+            out.put((byte) dx);
+            out.put((byte) dy);
+        } else {
+            out.put((byte) (actor | GameProtocol.ABSOLUTE));
+            out.putInt(x);
+            out.putInt(y);
+        }
+        return 1;
+    }
+
+    private void remember() {
+        Pacman pacman = engine.getPacman();
+        sentScore = pacman.getScore();
+        sentPowered = pacman.isPowered();
+        sentMode = engine.getGhostMode();
+        sentDirection = pacman.getDirection();
+        sentX[0] = pacman.getX();
+        sentY[0] = pacman.getY();
+        Ghost[] ghosts = engine.getGhosts();
+        for (int g = 0; g < ghosts.length; g++) {
+            sentX[g + 1] = ghosts[g].getX();
+            sentY[g + 1] = ghosts[g].getY();
+        }
+        PowerUp[] powerUps = engine.getPowerUps();
+        for (int p = 0; p < powerUps.length; p++) {
+            sentActive[p] = powerUps[p].isActive();
+            sentPowerUpX[p] = powerUps[p].getX();
+            sentPowerUpY[p] = powerUps[p].getY();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+// Índice espacial uniforme por celdas del tablero. Cada actor (identificado por
+// un entero) se guarda en la celda de su esquina superior izquierda mediante
+// listas enlazadas en arrays, así insertar, mover y quitar son O(1) y una
+// consulta solo recorre las celdas vecinas del rectángulo buscado.
+// Los actores no pueden medir más de maxActorSize píxeles.
+public final class SpatialHash {
+    private static final int NONE = -1;
+
+    private final int cellSize;
+    private final int maxActorSize;
+    private int cols;
+    private int rows;
+    private int[] heads = new int[0];
+    private int[] next = new int[0];
+    private int[] prev = new int[0];
+    private int[] cellOf = new int[0];
+
+    public SpatialHash(int cellSize, int maxActorSize) {
+        this.cellSize = cellSize;
+        this.maxActorSize = maxActorSize;
+    }
+
+    // Size the grid for a board of cols x rows cells and drop every actor
+    public void reset(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        if (heads.length != cols * rows) {
+            heads = new int[cols * rows];
+        }
+        Arrays.fill(heads, NONE);
+        Arrays.fill(cellOf, NONE);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= cellOf.length) {
+            int size = Math.max(id + 1, cellOf.length * 2);
+            int old = cellOf.length;
+            next = Arrays.copyOf(next, size);
+            prev = Arrays.copyOf(prev, size);
+            cellOf = Arrays.copyOf(cellOf, size);
+            Arrays.fill(cellOf, old, size, NONE);
+        }
+    }
+
+    private int cellAt(int x, int y) {
+        int col = Math.min(Math.max(x / cellSize, 0), cols - 1);
+        int row = Math.min(Math.max(y / cellSize, 0), rows - 1);
+        return row * cols + col;
+    }
+
+    // Insert the actor or move it to the cell of (x, y)
+    public void update(int id, int x, int y) {
+        ensureCapacity(id);
+        int cell = cellAt(x, y);
+        if (cellOf[id] == cell) {
+            return;
+        }
+        remove(id);
+        cellOf[id] = cell;
+        prev[id] = NONE;
+        next[id] = heads[cell];
+        if (heads[cell] != NONE) {
+            prev[heads[cell]] = id;
+        }
+        heads[cell] = id;
+    }
+
+    public void remove(int id) {
+        if (id >= cellOf.length || cellOf[id] == NONE) {
+            return;
+        }
+        int cell = cellOf[id];
+        if (prev[id] != NONE) {
+            next[prev[id]] = next[id];
+        } else {
+            heads[cell] = next[id];
+        }
+        if (next[id] != NONE) {
+            prev[next[id]] = prev[id];
+        }
+        cellOf[id] = NONE;
+    }
+
+    // Write into 'out' the ids of actors that may overlap the given square and
+    // return how many were written. Callers still do the exact overlap test.
+    public int query(int x, int y, int size, int[] out) {
+        int minCol = Math.max(Math.floorDiv(x - maxActorSize + 1, cellSize), 0);
+        int maxCol = Math.min(Math.floorDiv(x + size - 1, cellSize), cols - 1);
+        int minRow = Math.max(Math.floorDiv(y - maxActorSize + 1, cellSize), 0);
+        int maxRow = Math.min(Math.floorDiv(y + size - 1, cellSize), rows - 1);
+        int count = 0;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                for (int id = heads[row * cols + col]; id != NONE; id = next[id]) {
+                    if (count < out.length) {
+                        out[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
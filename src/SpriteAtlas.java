@@ -0,0 +1,180 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Todos los sprites del juego pre-renderizados una sola vez en una imagen
+// compartida: Pacman por variante de color (normal, con power-up y parpadeo),
+// dirección y fotograma de la boca, los fantasmas por color, el punto y cada
+// PowerUpType. Se dibujan con drawImage copiando un rectángulo del atlas, sin
+// rasterizar arcos ni óvalos en cada frame. Fuera del modo headless la imagen
+// es compatible con la pantalla, así que Java2D la mantiene en la tarjeta
+// gráfica.
+public final class SpriteAtlas {
+    public static final int PACMAN_NORMAL = 0;
+    public static final int PACMAN_POWERED = 1;
+    public static final int PACMAN_BLINK = 2;
+    private static final Color[] PACMAN_COLORS = {Color.YELLOW, Color.BLUE, Color.WHITE};
+    // Mouth opening in degrees per frame; frame 0 is the classic 60 degrees
+    private static final int[] MOUTH_OPENINGS = {60, 30, 4};
+    // Open, half, closed, half, open...
+    private static final int[] MOUTH_CYCLE = {0, 1, 2, 1};
+    // Pixels travelled per mouth frame
+    private static final int MOUTH_STEP = 3;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // The built-in ghosts first; colors added with GameEngine.addGhost take the
+    // spare slots on first draw
+    private static final Color[] GHOST_COLORS = {Color.RED, Color.PINK, Color.CYAN, Color.ORANGE};
+    private static final int GHOST_SLOTS = 8;
+    private static final Color GHOST_EYE = Color.WHITE;
+    private static final Color GHOST_PUPIL = Color.BLUE;
+    private static final int DOT_SIZE = 6;
+    private static final PowerUpType[] POWER_UP_TYPES = PowerUpType.values();
+
+    // Rows of the atlas
+    private static final int PACMAN_ROW = 0;
+    private static final int GHOST_ROW = PACMAN_COLORS.length;
+    private static final int ITEM_ROW = GHOST_ROW + 1;
+    private static final int ROWS = ITEM_ROW + 1;
+    private static final int DOT_COLUMN = 0;
+
+    // Declared after the tables above, which the constructor reads
+    public static final SpriteAtlas INSTANCE = new SpriteAtlas(GameEngine.SPRITE_SIZE);
+
+    private final int size;
+    private final BufferedImage image;
+    private final Color[] ghostColors = new Color[GHOST_SLOTS];
+    private int ghostCount;
+
+    SpriteAtlas(int size) {
+        this.size = size;
+        int columns = Math.max(DIRECTIONS.length * MOUTH_OPENINGS.length,
+            Math.max(GHOST_SLOTS, 1 + POWER_UP_TYPES.length));
+        image = createImage(columns * size, ROWS * size);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        for (int variant = 0; variant < PACMAN_COLORS.length; variant++) {
+            for (Direction direction : DIRECTIONS) {
+                for (int frame = 0; frame < MOUTH_OPENINGS.length; frame++) {
+                    drawPacman(g, variant, direction, frame);
+                }
+            }
+        }
+        for (Color color : GHOST_COLORS) {
+            addGhost(g, color);
+        }
+        drawDot(g);
+        for (PowerUpType type : POWER_UP_TYPES) {
+            drawPowerUp(g, type);
+        }
+        g.dispose();
+    }
+
+    private static BufferedImage createImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+            return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Mouth frame for Pacman drawn at (x, y): it chews as it moves and stays
+    // still when blocked
+    public static int mouthFrame(int x, int y) {
+        return MOUTH_CYCLE[Math.floorMod((x + y) / MOUTH_STEP, MOUTH_CYCLE.length)];
+    }
+
+    public void drawPacman(Graphics g, int variant, Direction direction, int frame, int x, int y) {
+        blit(g, direction.ordinal() * MOUTH_OPENINGS.length + frame, PACMAN_ROW + variant, x, y);
+    }
+
+    // Slot of a ghost color; call once and keep it. Past the spare slots the
+    // first color is reused.
+    public synchronized int ghostSprite(Color color) {
+        for (int i = 0; i < ghostCount; i++) {
+            if (ghostColors[i].equals(color)) {
+                return i;
+            }
+        }
+        if (ghostCount == GHOST_SLOTS) {
+            return 0;
+        }
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int slot = addGhost(g, color);
+        g.dispose();
+        return slot;
+    }
+
+    public void drawGhost(Graphics g, int sprite, int x, int y) {
+        blit(g, sprite, GHOST_ROW, x, y);
+    }
+
+    public void drawDot(Graphics g, int x, int y) {
+        blit(g, DOT_COLUMN, ITEM_ROW, x, y);
+    }
+
+    public void drawPowerUp(Graphics g, PowerUpType type, int x, int y) {
+        blit(g, DOT_COLUMN + 1 + type.ordinal(), ITEM_ROW, x, y);
+    }
+
+    private void blit(Graphics g, int column, int row, int x, int y) {
+        int sx = column * size;
+        int sy = row * size;
+        g.drawImage(image, x, y, x + size, y + size, sx, sy, sx + size, sy + size, null);
+    }
+
+    private void drawPacman(Graphics2D g, int variant, Direction direction, int frame) {
+        int x = (direction.ordinal() * MOUTH_OPENINGS.length + frame) * size;
+        int y = (PACMAN_ROW + variant) * size;
+        int opening = MOUTH_OPENINGS[frame];
+        g.setColor(PACMAN_COLORS[variant]);
+        // Body from one lip to the other, leaving the mouth centred on the
+        // direction of travel
+        g.fillArc(x, y, size, size, direction.getAngle() + opening / 2, 360 - opening);
+    }
+
+    private int addGhost(Graphics2D g, Color color) {
+        int slot = ghostCount++;
+        ghostColors[slot] = color;
+        int x = slot * size;
+        int y = GHOST_ROW * size;
+        int half = size / 2;
+        int foot = size / 3;
+        g.setColor(color);
+        // Dome, body and a skirt of three rounded feet
+        g.fillArc(x, y, size, size, 0, 180);
+        g.fillRect(x, y + half, size, half - foot / 2);
+        for (int i = 0; i < 3; i++) {
+            g.fillOval(x + i * foot, y + size - foot, foot + (i == 2 ? size - 3 * foot : 0), foot);
+        }
+        int eye = size / 4;
+        int pupil = eye / 2;
+        for (int ex : new int[] {x + size / 4 - eye / 2, x + 3 * size / 4 - eye / 2}) {
+            g.setColor(GHOST_EYE);
+            g.fillOval(ex, y + size / 4, eye, eye + 1);
+            g.setColor(GHOST_PUPIL);
+            g.fillOval(ex + (eye - pupil) / 2, y + size / 4 + (eye - pupil) / 2 + 1, pupil, pupil);
+        }
+        return slot;
+    }
+
+    private void drawDot(Graphics2D g) {
+        int offset = (size - DOT_SIZE) / 2;
+        g.setColor(Color.WHITE);
+        g.fillOval(DOT_COLUMN * size + offset, ITEM_ROW * size + offset, DOT_SIZE, DOT_SIZE);
+    }
+
+    private void drawPowerUp(Graphics2D g, PowerUpType type) {
+        int x = (DOT_COLUMN + 1 + type.ordinal()) * size;
+        int y = ITEM_ROW * size;
+        g.setColor(type.getColor());
+        g.fillOval(x + 5, y + 5, 10, 10);
+        g.setColor(Color.WHITE);
+        g.fillOval(x + 7, y + 7, 6, 6);
+    }
+}
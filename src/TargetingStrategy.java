@@ -0,0 +1,37 @@
+// Estrategia que persigue una celda objetivo: en cada cruce toma la salida
+// (sin dar media vuelta, salvo en callejones) más cercana al objetivo.
+public abstract class TargetingStrategy implements GhostStrategy {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Target node for this ghost, or -1 to keep going straight
+    protected abstract int target(Ghost ghost, GameEngine engine);
+
+    @Override
+    public Direction chooseDirection(Ghost ghost, GameEngine engine, int node) {
+        return towards(engine.getMazeGraph(), node, ghost.getDirection(), target(ghost, engine));
+    }
+
+    // Exit of 'node' closest to 'target' for a ghost heading that way; shared
+    // with BatchedEngine, which keeps ghosts in arrays instead of objects
+    static Direction towards(MazeGraph graph, int node, Direction heading, int target) {
+        Direction reverse = heading.opposite();
+        Direction best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Direction d : DIRECTIONS) {
+            int next = graph.neighbor(node, d);
+            if (next < 0 || d == reverse) {
+                continue;
+            }
+            int distance = target < 0 ? 0 : graph.distance(next, target);
+            if (distance >= 0 && distance < bestDistance) {
+                best = d;
+                bestDistance = distance;
+            }
+        }
+        if (best == null && graph.neighbor(node, reverse) >= 0) {
+            // Dead end: turning back is the only way out
+            best = reverse;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento de JFR por cada tick del bucle de juego, con la duración del tick y
+// el estado de la partida. Se graba con, por ejemplo:
+//   java -Dpacman.metrics -XX:StartFlightRecording=filename=pacman.jfr -cp bin Game
+@Name("pacman.Tick")
+@Label("Game Tick")
+@Category("Pac-Man")
+@Description("One fixed step of the game engine")
+@StackTrace(false)
+public final class TickEvent extends Event {
+    @Label("Tick")
+    long tick;
+
+    @Label("Level")
+    int level;
+
+    @Label("Ghosts")
+    int ghosts;
+
+    @Label("Remaining Dots")
+    int remainingDots;
+
+    @Label("Game Over")
+    boolean gameOver;
+}
@@ -0,0 +1,177 @@
+import java.nio.ByteBuffer;
+
+// Muchos entornos como PacmanEnv avanzados a la vez sobre BatchedEngine. Todo
+// el intercambio con el entrenador pasa por un único ByteBuffer directo del
+// llamante (o el fichero compartido de EnvServer), a partir de su posición:
+//
+//   acciones:       un byte por entorno, Direction.ordinal() o -1 para seguir igual
+//   estados:        un byte por entorno, GameStatus.ordinal() del último paso
+//   recompensas:    un int por entorno (en el orden de bytes del buffer), alineados a 4
+//   observaciones:  una por entorno (ObservationLayout), alineadas a 8
+//
+// Una partida que termina (GAME_OVER) empieza otra en el mismo paso con la
+// siguiente semilla: su estado y su recompensa son los del final, y su
+// observación ya es la primera de la partida nueva.
+public final class VectorEnv {
+    private static final int HALF = GameEngine.SPRITE_SIZE / 2;
+    private static final int BLOCK_SIZE = GameEngine.BLOCK_SIZE;
+    private static final GameStatus[] STATUSES = GameStatus.values();
+    private static final int DIRECTIONS = Direction.values().length;
+
+    private final int envs;
+    private final ObservationLayout layout;
+    private final BatchedEngine engine;
+    private final ByteBuffer buffer;
+    private final int rewards;
+    private final ObservationWriter[] writers;
+    // Views for the bulk byte copies, as ByteBuffer has no absolute bulk get/put before Java 13
+    private final ByteBuffer actionView;
+    private final ByteBuffer statusView;
+    private final byte[] actions;
+    private final byte[] status;
+    private final int[] scores;
+    private final int[] remainingDots;
+    private long nextSeed;
+
+    // Observation grid that fits every level
+    public VectorEnv(int envs, LevelSource levels, ByteBuffer buffer) {
+        this(envs, levels, ObservationLayout.of(levels), buffer);
+    }
+
+    // Starts every environment with reset(0)
+    public VectorEnv(int envs, LevelSource levels, ObservationLayout layout, ByteBuffer buffer) {
+        this.envs = envs;
+        layout.checkLevels(levels);
+        this.layout = layout;
+        this.engine = new BatchedEngine(envs, levels);
+        this.buffer = buffer;
+        int base = buffer.position();
+        layout.checkBuffer(buffer, base + observationsOffset(envs), envs);
+        rewards = base + rewardsOffset(envs);
+        writers = new ObservationWriter[envs];
+        for (int env = 0; env < envs; env++) {
+            writers[env] = new ObservationWriter(layout, buffer, base + observationsOffset(envs) + env * layout.getBytes());
+        }
+        actionView = buffer.duplicate();
+        actionView.position(base);
+        statusView = buffer.duplicate();
+        statusView.position(base + statusOffset(envs));
+        actions = new byte[envs];
+        status = new byte[envs];
+        scores = new int[envs];
+        remainingDots = new int[envs];
+        reset(0);
+    }
+
+    public static int statusOffset(int envs) {
+        return envs;
+    }
+
+    public static int rewardsOffset(int envs) {
+        return (2 * envs + 3) & ~3;
+    }
+
+    public static int observationsOffset(int envs) {
+        return (rewardsOffset(envs) + 4 * envs + 7) & ~7;
+    }
+
+    // Bytes the buffer needs after its position
+    public static long bufferBytes(int envs, ObservationLayout layout) {
+        return observationsOffset(envs) + (long) envs * layout.getBytes();
+    }
+
+    // Environment i plays seed + i; the ones started later take seed + envs, ...
+    public void reset(long seed) {
+        for (int env = 0; env < envs; env++) {
+            engine.reset(env, seed + env);
+            start(env);
+            status[env] = (byte) GameStatus.RUNNING.ordinal();
+            buffer.putInt(rewards + 4 * env, 0);
+        }
+        nextSeed = seed + envs;
+        statusView.mark();
+        statusView.put(status).reset();
+    }
+
+    // Read the actions, advance every environment one tick and write the
+    // statuses, rewards and observations. Returns how many games ended.
+    // Throws IllegalArgumentException, before touching any game, if an action
+    // is neither -1 nor a Direction ordinal.
+    public int step() {
+        actionView.mark();
+        actionView.get(actions).reset();
+        for (int env = 0; env < envs; env++) {
+            if (actions[env] < BatchedEngine.NO_INPUT || actions[env] >= DIRECTIONS) {
+                throw new IllegalArgumentException("Bad action " + actions[env] + " for environment " + env);
+            }
+        }
+        engine.step(actions, status);
+        int ended = 0;
+        for (int env = 0; env < envs; env++) {
+            int score = engine.getScore(env);
+            GameStatus envStatus = STATUSES[status[env]];
+            buffer.putInt(rewards + 4 * env, PacmanEnv.reward(scores[env], score, envStatus));
+            scores[env] = score;
+            if (envStatus == GameStatus.GAME_OVER) {
+                ended++;
+                engine.reset(env, nextSeed++);
+                start(env);
+                continue;
+            }
+            int dots = engine.getRemainingDots(env);
+            if (envStatus == GameStatus.LEVEL_COMPLETE) {
+                writers[env].writeLevel(engine.getLevel(env));
+            } else if (dots < remainingDots[env]) {
+                // Eaten under Pacman's center, as in GameEngine.eatPoint()
+                writers[env].eatDot((engine.getPacmanX(env) + HALF) / BLOCK_SIZE,
+                    (engine.getPacmanY(env) + HALF) / BLOCK_SIZE);
+            }
+            remainingDots[env] = dots;
+            writeActors(env);
+        }
+        statusView.mark();
+        statusView.put(status).reset();
+        return ended;
+    }
+
+    private void start(int env) {
+        scores[env] = 0;
+        remainingDots[env] = engine.getRemainingDots(env);
+        writers[env].writeLevel(engine.getLevel(env));
+        writeActors(env);
+    }
+
+    private void writeActors(int env) {
+        ObservationWriter writer = writers[env];
+        Level level = engine.getLevel(env);
+        int width = level.getWidth();
+        int height = level.getHeight();
+        writer.clearActors();
+        writer.pacman(engine.getPacmanX(env), engine.getPacmanY(env), width, height);
+        for (int g = 0; g < BatchedEngine.GHOSTS; g++) {
+            writer.ghost(g, engine.getGhostX(g, env), engine.getGhostY(g, env), width, height);
+        }
+        for (int p = 0; p < engine.getPowerUpCount(); p++) {
+            writer.powerUp(p, engine.isPowerUpActive(p, env), engine.getPowerUpType(p),
+                engine.getPowerUpX(p, env), engine.getPowerUpY(p, env), width, height);
+        }
+        writer.status(engine.getScore(env), engine.isPowered(env));
+    }
+
+    public int getEnvCount() {
+        return envs;
+    }
+
+    public ObservationLayout getLayout() {
+        return layout;
+    }
+
+    // Seed of the game environment 'env' is playing
+    public long getSeed(int env) {
+        return engine.getSeed(env);
+    }
+
+    public BatchedEngine getEngine() {
+        return engine;
+    }
+}